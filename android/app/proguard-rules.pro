@@ -19,3 +19,6 @@
 # Retrofit models
 -keep class fct.inesctec.stayaway.tracing.internal.models.** { *; }
 -keep class fct.inesctec.stayaway.tracing.internal.networking.models.** { *; }
+
+# Protobuf lite messages are parsed reflectively
+-keep class * extends com.google.protobuf.GeneratedMessageLite { *; }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.benchmark;
+
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Map;
+
+import fct.inesctec.stayaway.tracing.internal.networking.ConfigParser;
+import fct.inesctec.stayaway.tracing.internal.networking.models.AppVersionModel;
+import fct.inesctec.stayaway.tracing.internal.networking.models.ConfigResponseModel;
+import fct.inesctec.stayaway.tracing.internal.networking.models.InfoBoxModel;
+import fct.inesctec.stayaway.tracing.internal.networking.models.ParametersModel;
+import fct.inesctec.stayaway.tracing.internal.networking.models.VersionModel;
+import fct.inesctec.stayaway.tracing.internal.networking.proto.AppVersions;
+import fct.inesctec.stayaway.tracing.internal.networking.proto.Config;
+import fct.inesctec.stayaway.tracing.internal.networking.proto.InfoBox;
+import fct.inesctec.stayaway.tracing.internal.networking.proto.Parameters;
+import fct.inesctec.stayaway.tracing.internal.networking.proto.Version;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Parse time of the config in JSON and protobuf. Payload sizes are logged under the ConfigFormatBenchmark tag.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ConfigFormatBenchmark {
+
+    private static final String TAG = "ConfigFormatBenchmark";
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final MediaType PROTOBUF = MediaType.get("application/x-protobuf");
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private byte[] json;
+    private byte[] protobuf;
+
+    @Before
+    public void setUp() throws IOException {
+        json = ParsingBenchmark.readAsset("defaultsv2.json");
+        protobuf = toProto(new Gson().fromJson(new String(json, "UTF-8"), ConfigResponseModel.class)).toByteArray();
+
+        Log.i(TAG, "json: " + json.length + " bytes, protobuf: " + protobuf.length + " bytes");
+
+        // Both formats must give the same config
+        ConfigResponseModel fromJson = ConfigParser.parse(ResponseBody.create(JSON, json));
+        ConfigResponseModel fromProtobuf = ConfigParser.parse(ResponseBody.create(PROTOBUF, protobuf));
+        assertEquals(toProto(fromJson), toProto(fromProtobuf));
+    }
+
+    @Test
+    public void parseJson() throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ConfigParser.parse(ResponseBody.create(JSON, json));
+        }
+    }
+
+    @Test
+    public void parseProtobuf() throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ConfigParser.parse(ResponseBody.create(PROTOBUF, protobuf));
+        }
+    }
+
+    private static Config toProto(ConfigResponseModel config) {
+        AppVersionModel versions = config.getVersions();
+        ParametersModel parameters = config.getParameters();
+        Config.Builder builder = Config.newBuilder()
+                .setVersions(AppVersions.newBuilder()
+                        .setIos(toProto(versions.getIOSVersion()))
+                        .setAndroid(toProto(versions.getAndroidVersion())))
+                .setParameters(Parameters.newBuilder()
+                        .setLowerThreshold(parameters.getLowerThreshold())
+                        .setHigherThreshold(parameters.getHigherThreshold())
+                        .setFactorLow(parameters.getFactorLow())
+                        .setFactorHigh(parameters.getFactorHigh())
+                        .setTriggerThreshold(parameters.getTriggerThreshold()));
+
+        Map<String, InfoBoxModel> infoBoxes = config.getInfoBox();
+        for (Map.Entry<String, InfoBoxModel> entry : infoBoxes.entrySet()) {
+            InfoBoxModel infoBox = entry.getValue();
+            builder.putInfoBox(entry.getKey(), InfoBox.newBuilder()
+                    .setId(infoBox.getId())
+                    .setTitle(infoBox.getTitle())
+                    .setText(infoBox.getText())
+                    .setUrl(infoBox.getUrl())
+                    .build());
+        }
+        return builder.build();
+    }
+
+    private static Version toProto(VersionModel version) {
+        return Version.newBuilder().setName(version.getName()).setBuild(version.getBuild()).build();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.benchmark;
+
+import android.util.Base64;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.gson.Gson;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import fct.inesctec.stayaway.tracing.internal.networking.models.ConfigResponseModel;
+import fct.inesctec.stayaway.tracing.internal.util.ExponentialDistribution;
+import fct.inesctec.stayaway.tracing.internal.util.JwtUtil;
+
+/**
+ * Parsing and sampling hot paths of the native layer.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ParsingBenchmark {
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private String accessToken;
+    private String config;
+
+    @Before
+    public void setUp() throws IOException {
+        String payload = "{\"onset\":\"2020-11-20\",\"fake\":\"0\"}";
+        accessToken = "eyJhbGciOiJFUzI1NiJ9." +
+                Base64.encodeToString(payload.getBytes(StandardCharsets.UTF_8), Base64.NO_WRAP) +
+                ".c2lnbmF0dXJl";
+
+        config = new String(readAsset("defaultsv2.json"), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void jwtGetOnsetDate() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            JwtUtil.getOnsetDate(accessToken);
+        }
+    }
+
+    @Test
+    public void exponentialSampleFromStandard() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ExponentialDistribution.sampleFromStandard();
+        }
+    }
+
+    @Test
+    public void configGsonParsing() {
+        Gson gson = new Gson();
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            gson.fromJson(config, ConfigResponseModel.class);
+        }
+    }
+
+    static byte[] readAsset(String name) throws IOException {
+        try (InputStream inputStream = InstrumentationRegistry.getInstrumentation().getContext().getAssets().open(name)) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            return outputStream.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.benchmark;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import fct.inesctec.stayaway.tracing.internal.storage.SecureStorage;
+
+/**
+ * Read and write throughput of the encrypted storage.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class SecureStorageBenchmark {
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private SecureStorage secureStorage;
+
+    private long tDummy;
+    private String infoboxTitle;
+    private String infoboxText;
+    private String infoboxLink;
+    private String infoboxId;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        secureStorage = SecureStorage.getInstance(context);
+
+        // The benchmarks write to the app storage, restore it afterwards
+        tDummy = secureStorage.getTDummy();
+        infoboxTitle = secureStorage.getInfoboxTitle();
+        infoboxText = secureStorage.getInfoboxText();
+        infoboxLink = secureStorage.getInfoboxLink();
+        infoboxId = secureStorage.getInfoboxId();
+    }
+
+    @After
+    public void tearDown() {
+        secureStorage.edit(batch -> batch
+                .setTDummy(tDummy)
+                .setInfoboxTitle(infoboxTitle)
+                .setInfoboxText(infoboxText)
+                .setInfoboxLink(infoboxLink)
+                .setInfoboxId(infoboxId));
+    }
+
+    @Test
+    public void read() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            secureStorage.getTDummy();
+        }
+    }
+
+    @Test
+    public void write() {
+        BenchmarkState state = benchmarkRule.getState();
+        long value = 0;
+        while (state.keepRunning()) {
+            secureStorage.setTDummy(value++);
+        }
+    }
+
+    @Test
+    public void writeInfoboxSeparately() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            secureStorage.setInfoboxTitle("title");
+            secureStorage.setInfoboxText("text");
+            secureStorage.setInfoboxLink("https://stayawaycovid.pt");
+            secureStorage.setInfoboxId("id");
+        }
+    }
+
+    @Test
+    public void writeInfoboxBatched() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            secureStorage.edit(batch -> batch
+                    .setInfoboxTitle("title")
+                    .setInfoboxText("text")
+                    .setInfoboxLink("https://stayawaycovid.pt")
+                    .setInfoboxId("id"));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+import fct.inesctec.stayaway.tracing.internal.networking.PersistentTls;
+import okhttp3.CertificatePinner;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.tls.HandshakeCertificates;
+import okhttp3.tls.HeldCertificate;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * First request of a new process against a local TLS server, with a cold and with a persisted
+ * session cache. Every iteration uses a new client and socket factory, as after a process restart,
+ * and the same certificate pin as the real backends would.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class TlsResumptionBenchmark {
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private MockWebServer server;
+    private HandshakeCertificates clientCertificates;
+    private CertificatePinner pinner;
+    private Request request;
+    private File sessionDir;
+
+    @Before
+    public void setUp() throws IOException {
+        HeldCertificate certificate = new HeldCertificate.Builder()
+                .addSubjectAlternativeName("localhost")
+                .build();
+        HandshakeCertificates serverCertificates = new HandshakeCertificates.Builder()
+                .heldCertificate(certificate)
+                .build();
+        clientCertificates = new HandshakeCertificates.Builder()
+                .addTrustedCertificate(certificate.certificate())
+                .build();
+
+        server = new MockWebServer();
+        server.useHttps(serverCertificates.sslSocketFactory(), false);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest recordedRequest) {
+                return new MockResponse().setBody("{}");
+            }
+        });
+        server.start();
+
+        pinner = new CertificatePinner.Builder()
+                .add("localhost", CertificatePinner.pin(certificate.certificate()))
+                .build();
+        request = new Request.Builder().url(server.url("/config/defaultsv2.json")).build();
+
+        sessionDir = new File(InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir(),
+                "benchmark_tls_sessions");
+        deleteSessions();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+        deleteSessions();
+    }
+
+    @Test
+    public void fullHandshake() throws GeneralSecurityException, IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            deleteSessions();
+            OkHttpClient client = newClient();
+            state.resumeTiming();
+
+            fetch(client);
+        }
+    }
+
+    @Test
+    public void resumedHandshake() throws GeneralSecurityException, IOException {
+        fetch(newClient());
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            OkHttpClient client = newClient();
+            state.resumeTiming();
+
+            fetch(client);
+        }
+    }
+
+    private OkHttpClient newClient() throws GeneralSecurityException, IOException {
+        PersistentTls tls = PersistentTls.create(sessionDir, clientCertificates.trustManager());
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool())
+                .sslSocketFactory(tls.getSocketFactory(), tls.getTrustManager())
+                .certificatePinner(pinner)
+                .build();
+    }
+
+    private void fetch(OkHttpClient client) throws IOException {
+        try (Response response = client.newCall(request).execute()) {
+            assertTrue(response.isSuccessful());
+        }
+    }
+
+    private void deleteSessions() {
+        File[] files = sessionDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+}
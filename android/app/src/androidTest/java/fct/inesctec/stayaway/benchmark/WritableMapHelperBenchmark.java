@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.benchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.soloader.SoLoader;
+
+import org.dpppt.android.sdk.InfectionStatus;
+import org.dpppt.android.sdk.TracingStatus;
+import org.dpppt.android.sdk.models.DayDate;
+import org.dpppt.android.sdk.models.ExposureDay;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import fct.inesctec.stayaway.tracing.internal.util.WritableMapHelper;
+
+/**
+ * Cost of converting the tracing status for the bridge, by number of exposure days.
+ *
+ * Benchmarks give reproducible numbers on a non-debuggable build only, run them with:
+ * ./gradlew -DtestBuildType=staging connectedProductionStagingAndroidTest
+ *     -Pandroid.testInstrumentationRunnerArguments.package=fct.inesctec.stayaway.benchmark
+ */
+@LargeTest
+@RunWith(Parameterized.class)
+public class WritableMapHelperBenchmark {
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameters(name = "exposureDays={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{0}, {1}, {10}, {100}, {1000}});
+    }
+
+    @Parameterized.Parameter
+    public int exposureDayCount;
+
+    private TracingStatus status;
+
+    @Before
+    public void setUp() {
+        SoLoader.init(InstrumentationRegistry.getInstrumentation().getTargetContext(), false);
+
+        long now = System.currentTimeMillis();
+        List<ExposureDay> exposureDays = new ArrayList<>();
+        for (int i = 0; i < exposureDayCount; i++) {
+            exposureDays.add(new ExposureDay(i, new DayDate(now - (i % 14) * DAY_MILLIS), now));
+        }
+        status = new TracingStatus(true, now, InfectionStatus.EXPOSED, exposureDays, Collections.emptyList());
+    }
+
+    @Test
+    public void wrapTracingStatus() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            WritableMapHelper.wrapTracingStatus(status);
+        }
+    }
+
+    @Test
+    public void copyWrappedTracingStatus() {
+        WritableNativeMap template = (WritableNativeMap) WritableMapHelper.wrapTracingStatus(status);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            new WritableNativeMap().merge(template);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.storage;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class SingletonConcurrencyTest {
+
+    private static final int ROUNDS = 10;
+    private static final int THREADS = 32;
+    private static final int ITERATIONS = 100;
+
+    @Test
+    public void secureStorageIsConstructedOnce() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            // MainApplication already created it, the threads must race for a new one
+            SecureStorage.resetInstance();
+            int constructions = SecureStorage.getConstructionCount();
+
+            Set<Object> instances = hammer(() -> {
+                SecureStorage.warmUp(context);
+                return SecureStorage.getInstance(context);
+            });
+
+            assertEquals(1, instances.size());
+            assertEquals(constructions + 1, SecureStorage.getConstructionCount());
+        }
+    }
+
+    /**
+     * Call the getter from many threads released at the same time and collect every distinct instance seen.
+     */
+    private Set<Object> hammer(Callable<Object> getter) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Object>>> results = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                List<Object> seen = new ArrayList<>();
+                for (int j = 0; j < ITERATIONS; j++) {
+                    seen.add(getter.call());
+                }
+                return seen;
+            }));
+        }
+        start.countDown();
+
+        Set<Object> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Future<List<Object>> result : results) {
+            instances.addAll(result.get());
+        }
+        executor.shutdown();
+
+        return instances;
+    }
+}
@@ -22,6 +22,9 @@ import java.util.List;
 
 import fct.inesctec.stayaway.tracing.TracingManagerModule;
 import fct.inesctec.stayaway.tracing.TracingManagerPackage;
+import fct.inesctec.stayaway.tracing.internal.startup.DeferredInitializer;
+import fct.inesctec.stayaway.tracing.internal.startup.StartupTracer;
+import fct.inesctec.stayaway.tracing.internal.storage.SecureStorage;
 
 public class MainApplication extends Application implements ReactApplication {
   private final ReactNativeHost mReactNativeHost =
@@ -55,7 +58,17 @@ public class MainApplication extends Application implements ReactApplication {
   @Override
   public void onCreate() {
     super.onCreate();
+    StartupTracer.begin("MainApplication.onCreate");
+    // Keystore and keyset loading run in the background while the rest of the app starts
+    SecureStorage.warmUp(this);
+
+    StartupTracer.begin("SoLoader.init");
     SoLoader.init(this, /* native exopackage */ false);
+    StartupTracer.end();
+
     TracingManagerModule.init(this);
+    StartupTracer.end();
+    // For UI starts the trace runs until the main thread goes idle, after the first frame
+    DeferredInitializer.afterStartup(() -> StartupTracer.finish(this));
   }
 }
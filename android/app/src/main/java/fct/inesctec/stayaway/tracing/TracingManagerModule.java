@@ -30,7 +30,6 @@ import com.facebook.react.bridge.WritableMap;
 import com.google.android.gms.common.api.ApiException;
 
 import org.dpppt.android.sdk.DP3T;
-import org.dpppt.android.sdk.TracingStatus;
 import org.dpppt.android.sdk.backend.ResponseCallback;
 import org.dpppt.android.sdk.internal.logger.LogLevel;
 import org.dpppt.android.sdk.internal.logger.Logger;
@@ -38,6 +37,7 @@ import org.dpppt.android.sdk.internal.util.LocationServiceUtil;
 import org.dpppt.android.sdk.models.ApplicationInfo;
 import org.dpppt.android.sdk.models.ExposeeAuthMethodAuthorization;
 import org.dpppt.android.sdk.util.SignatureUtil;
+import org.json.JSONException;
 
 import java.net.UnknownHostException;
 import java.security.PublicKey;
@@ -47,8 +47,12 @@ import java.util.HashSet;
 import java.util.concurrent.CancellationException;
 
 import fct.inesctec.stayaway.BuildConfig;
+import fct.inesctec.stayaway.tracing.internal.broadcast.DeviceStateMonitor;
 import fct.inesctec.stayaway.tracing.internal.broadcast.UpdateEventBroadcastReceiver;
+import fct.inesctec.stayaway.tracing.internal.metrics.Metrics;
+import fct.inesctec.stayaway.tracing.internal.metrics.MetricsRegistry;
 import fct.inesctec.stayaway.tracing.internal.networking.AuthCodeRepository;
+import fct.inesctec.stayaway.tracing.internal.networking.BackendWarmUp;
 import fct.inesctec.stayaway.tracing.internal.networking.CertificatePinning;
 import fct.inesctec.stayaway.tracing.internal.networking.ConfigWorker;
 import fct.inesctec.stayaway.tracing.internal.networking.FakeWorker;
@@ -56,6 +60,11 @@ import fct.inesctec.stayaway.tracing.internal.networking.errors.InvalidCodeError
 import fct.inesctec.stayaway.tracing.internal.networking.errors.ResponseError;
 import fct.inesctec.stayaway.tracing.internal.networking.models.AuthenticationCodeRequestModel;
 import fct.inesctec.stayaway.tracing.internal.networking.models.AuthenticationCodeResponseModel;
+import fct.inesctec.stayaway.tracing.internal.startup.DeferredInitializer;
+import fct.inesctec.stayaway.tracing.internal.startup.StartupTracer;
+import fct.inesctec.stayaway.tracing.internal.status.DashboardState;
+import fct.inesctec.stayaway.tracing.internal.status.StatusEventEncoder;
+import fct.inesctec.stayaway.tracing.internal.status.TracingStatusCache;
 import fct.inesctec.stayaway.tracing.internal.storage.SecureStorage;
 import fct.inesctec.stayaway.tracing.internal.util.DeviceFeatureHelper;
 import fct.inesctec.stayaway.tracing.internal.util.DeviceInfo;
@@ -75,6 +84,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
     private static final long TIMEOUT_VALID_CODE = 1000L * 60 * 5;
 
     public static final String UPDATE_EVENT = "fct.inesctec.stayaway.android.sdk.UPDATE_EVENT";
+    public static final String DEVICE_STATE_EVENT = "fct.inesctec.stayaway.android.sdk.DEVICE_STATE_EVENT";
 
     private static final String BATTERY_PERMISSION_GRANTED = "BATTERY_PERMISSION_GRANTED";
     private static final String BATTERY_PERMISSION_DENIED = "BATTERY_PERMISSION_DENIED";
@@ -113,14 +123,26 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
 
     /**
      * Init tracing sdk.
+     *
+     * Only what the SDK needs right away runs here, the rest is deferred until the start is over.
      */
     public static void init(Context context) {
+        StartupTracer.begin("TracingManagerModule.init");
+
+        SecureStorage.warmUp(context);
+
         if (BuildConfig.IS_RELEASE.equals("FALSE")) {
+            StartupTracer.begin("Logger.init");
             Logger.init(context, LogLevel.DEBUG);
+            StartupTracer.end();
+
+            StartupTracer.begin("CertificatePinning.initDebug");
             CertificatePinning.initDebug(context);
+            StartupTracer.end();
         }
 
         if (BuildConfig.IS_UI.equals("FALSE")) {
+            StartupTracer.begin("registerReceiver");
             // Create listeners
             updateEventBroadcasterReceiver = new UpdateEventBroadcastReceiver();
 
@@ -129,28 +151,43 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
                     updateEventBroadcasterReceiver,
                     DP3T.getUpdateIntentFilter()
             );
+
+            // Status is now invalidated on every update, serve it from memory
+            TracingStatusCache.enable(context);
+            StartupTracer.end();
         }
 
         initDP3T(context);
 
         if (BuildConfig.IS_UI.equals("FALSE")) {
-            FakeWorker.safeStartFakeWorker(context);
-            ConfigWorker.scheduleConfigWorkerIfOutdated(context);
+            // Reads the encrypted storage and enqueues work, none of it is needed for the first frame
+            DeferredInitializer.runDeferred(() -> {
+                FakeWorker.safeStartFakeWorker(context);
+                ConfigWorker.scheduleConfigWorkerIfOutdated(context);
+            });
         }
 
-        Log.d(TAG, "Tracing Manager initiated");
+        StartupTracer.end();
     }
 
     public static void initDP3T(Context context) {
+        StartupTracer.begin("initDP3T");
+
+        StartupTracer.begin("decodePublicKey");
         PublicKey publicKey = SignatureUtil.getPublicKeyFromBase64OrThrow(BuildConfig.BACKEND_PUBLIC_KEY);
+        StartupTracer.end();
 
+        StartupTracer.begin("DP3T.init");
         ApplicationInfo applicationInfo = new ApplicationInfo(BuildConfig.BACKEND_REPORT_URL, BuildConfig.BACKEND_BUCKET_URL);
         DP3T.init(context, applicationInfo, publicKey, BuildConfig.DEV_HISTORY.equals("TRUE"));
+        StartupTracer.end();
 
         DP3T.setCertificatePinner(CertificatePinning.getCertificatePinner());
         DP3T.setUserAgent(() ->
             context.getPackageName() + ";" + BuildConfig.VERSION_NAME + ";" + BuildConfig.BUILD_TIME +
             ";Android;" + Build.VERSION.SDK_INT + ";" + DP3T.getENModuleVersion(context));
+
+        StartupTracer.end();
     }
 
     /**
@@ -165,9 +202,11 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void start(final Promise promise) {
+        Metrics.bridgeCall("start");
         DP3T.start(getCurrentActivity(),
                 () -> {
                     Log.d(TAG, "EN started");
+                    TracingStatusCache.invalidate();
                     promise.resolve(EN_SUCCEEDED);
                 },
                 (e) -> {
@@ -186,7 +225,9 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void stop(Promise promise) {
+        Metrics.bridgeCall("stop");
         DP3T.stop(getReactApplicationContext());
+        TracingStatusCache.invalidate();
         promise.resolve(null);
     }
 
@@ -195,6 +236,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void isTracingEnabled(Promise promise) {
+        Metrics.bridgeCall("isTracingEnabled");
         promise.resolve(DP3T.isTracingEnabled(getReactApplicationContext()));
     }
 
@@ -203,6 +245,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void sync(Promise promise) {
+        Metrics.bridgeCall("sync");
         DP3T.sync(getReactApplicationContext());
         promise.resolve(null);
     }
@@ -212,6 +255,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void getInfo(Promise promise) {
+        Metrics.bridgeCall("getInfo");
         DeviceInfo deviceInfo = DeviceInfo.getInstance();
 
         WritableMap writableMap = WritableMapHelper.wrapDeviceInfo(deviceInfo);
@@ -224,6 +268,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void deviceSupportsLocationlessScanning(Promise promise) {
+        Metrics.bridgeCall("deviceSupportsLocationlessScanning");
         promise.resolve(DeviceFeatureHelper.supportsLocationlessScanning(getReactApplicationContext()));
     }
 
@@ -241,13 +286,121 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void getStatus(Promise promise) {
-        TracingStatus status = DP3T.getStatus(getReactApplicationContext());
-
-        WritableMap writableMap = WritableMapHelper.wrapTracingStatus(status);
+        Metrics.bridgeCall("getStatus");
+        WritableMap writableMap = StatusEventEncoder.encodeSnapshot(getReactApplicationContext());
 
         promise.resolve(writableMap);
     }
 
+    /**
+     * Returns everything the home screen needs in a single call.
+     * The status becomes the base for the following patches, as with getStatus.
+     *
+     * @example
+     * {
+     *     status : TracingStatus
+     *     tracingEnabled : boolean
+     *     locationServiceEnabled : boolean
+     *     bluetoothServiceEnabled : boolean
+     *     ignoringBatteryOptimizations : boolean
+     *     specialBatteryOptimizationSystem : boolean
+     *     locationlessScanning : boolean
+     *     info : DeviceInfo
+     * }
+     */
+    @ReactMethod
+    public void getDashboardState(Promise promise) {
+        Metrics.bridgeCall("getDashboardState");
+        DashboardState.load(getReactApplicationContext(), promise);
+    }
+
+    /**
+     * Start sending DEVICE_STATE_EVENT on Bluetooth, location and battery optimization changes.
+     * Calls are counted, events stop once every start was matched by a stop.
+     *
+     * @example
+     * {
+     *     bluetoothServiceEnabled : boolean
+     *     locationServiceEnabled : boolean
+     *     ignoringBatteryOptimizations : boolean
+     *     powerSaveMode : boolean
+     * }
+     */
+    @ReactMethod
+    public void startDeviceStateUpdates(Promise promise) {
+        Metrics.bridgeCall("startDeviceStateUpdates");
+        DeviceStateMonitor.start(getReactApplicationContext());
+        promise.resolve(null);
+    }
+
+    @ReactMethod
+    public void stopDeviceStateUpdates(Promise promise) {
+        Metrics.bridgeCall("stopDeviceStateUpdates");
+        DeviceStateMonitor.stop();
+        promise.resolve(null);
+    }
+
+    /**
+     * Send update events as patches against the last status sent to JS instead of the full status.
+     *
+     * @param enabled
+     */
+    @ReactMethod
+    public void setStatusPatchesEnabled(boolean enabled, Promise promise) {
+        Metrics.bridgeCall("setStatusPatchesEnabled");
+        StatusEventEncoder.setPatchesEnabled(enabled);
+        promise.resolve(null);
+    }
+
+    /**
+     * Returns the phase timings of the last cold starts, oldest first.
+     *
+     * @example
+     * [{
+     *     timestamp : long
+     *     launchedForUi : boolean
+     *     processStartMs : double
+     *     totalMs : double
+     *     phases : List<{ name : String, depth : int, startMs : double, durationMs : double }>
+     * }]
+     */
+    @ReactMethod
+    public void getStartupTraces(Promise promise) {
+        Metrics.bridgeCall("getStartupTraces");
+        try {
+            promise.resolve(WritableMapHelper.wrapStartupTraces(StartupTracer.getTraces(getReactApplicationContext())));
+        } catch (JSONException e) {
+            promise.reject(e);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the native metrics, for QA.
+     *
+     * @example
+     * {
+     *     counters : { [name] : long }
+     *     histograms : { [name] : { count : long, sum : long, bounds : List<long>, buckets : List<long> } }
+     *     configCircuit : 'CLOSED' | 'OPEN' | 'HALF_OPEN'
+     * }
+     */
+    @ReactMethod
+    public void getMetrics(Promise promise) {
+        Metrics.bridgeCall("getMetrics");
+        promise.resolve(WritableMapHelper.wrapMetrics(MetricsRegistry.getCounters(), MetricsRegistry.getHistograms(),
+                ConfigWorker.getCircuitState(reactContext)));
+    }
+
+    /**
+     * Prepares, without contacting the backends, what is needed to submit a positive test. Called when the code entry is shown.
+     */
+    @ReactMethod
+    public void warmUpBackends(Promise promise) {
+        Metrics.bridgeCall("warmUpBackends");
+        BackendWarmUp.warmUp(getReactApplicationContext());
+        promise.resolve(null);
+    }
+
     /**
      * This method must be called upon positive test.
      *
@@ -255,6 +408,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void exposed(String authCode, final Promise promise) {
+        Metrics.bridgeCall("exposed");
         Context context = getReactApplicationContext();
         SecureStorage secureStorage = SecureStorage.getInstance(context);
         long lastTimestamp = secureStorage.getLastInformRequestTime();
@@ -273,11 +427,13 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void resetInfectionStatus(Promise promise) {
+        Metrics.bridgeCall("resetInfectionStatus");
         Context context = getReactApplicationContext();
         boolean resettable = DP3T.getIAmInfectedIsResettable(context);
 
         if (resettable) {
             DP3T.resetInfectionStatus(context);
+            TracingStatusCache.invalidate();
         }
 
         promise.resolve(resettable);
@@ -288,8 +444,10 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void resetExposureDays(Promise promise) {
+        Metrics.bridgeCall("resetExposureDays");
         Context context = getReactApplicationContext();
         DP3T.resetExposureDays(context);
+        TracingStatusCache.invalidate();
         promise.resolve(null);
     }
 
@@ -298,6 +456,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void isIgnoringBatteryOptimizationsPermission(Promise promise) {
+        Metrics.bridgeCall("isIgnoringBatteryOptimizationsPermission");
         boolean batteryOptDeactivated = DeviceFeatureHelper.isBatteryOptimizationDeactivated(getReactApplicationContext());
 
         promise.resolve(batteryOptDeactivated);
@@ -308,6 +467,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void hasSpecialBatteryOptimizationSystem(Promise promise) {
+        Metrics.bridgeCall("hasSpecialBatteryOptimizationSystem");
         promise.resolve(SpecialBatterySystemHelper.hasSpecialBatterySystem());
     }
 
@@ -316,6 +476,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void requestIgnoreBatteryOptimizationsPermission(Promise promise) {
+        Metrics.bridgeCall("requestIgnoreBatteryOptimizationsPermission");
         Context context = getReactApplicationContext();
         Activity currentActivity = getCurrentActivity();
 
@@ -341,6 +502,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void openBatteryOptimizationSettings(Promise promise) {
+        Metrics.bridgeCall("openBatteryOptimizationSettings");
         Context context = getReactApplicationContext();
         Activity currentActivity = getCurrentActivity();
 
@@ -356,6 +518,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void isLocationServiceEnabled(Promise promise) {
+        Metrics.bridgeCall("isLocationServiceEnabled");
         boolean locationEnabled = LocationServiceUtil.isLocationEnabled(getReactApplicationContext());
 
         promise.resolve(locationEnabled);
@@ -366,6 +529,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void requestLocationService(Promise promise) {
+        Metrics.bridgeCall("requestLocationService");
         Activity currentActivity = getCurrentActivity();
 
         // Store the promise to resolve/reject when permission request returns
@@ -382,6 +546,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void isBluetoothServiceEnabled(Promise promise) {
+        Metrics.bridgeCall("isBluetoothServiceEnabled");
         boolean bluetoothEnabled = DeviceFeatureHelper.isBluetoothEnabled();
 
         promise.resolve(bluetoothEnabled);
@@ -392,6 +557,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
      */
     @ReactMethod
     public void requestBluetoothService(Promise promise) {
+        Metrics.bridgeCall("requestBluetoothService");
         Activity currentActivity = getCurrentActivity();
 
         // Store the promise to resolve/reject when permission request returns
@@ -404,6 +570,10 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
     }
 
     public static void onActivityResult(int requestCode, int resultCode, Intent data) {
+        // Permission and service changes affect the status errors
+        TracingStatusCache.invalidate();
+        DeviceStateMonitor.onChanged();
+
         if (requestCode == REQUEST_IGNORE_BATTERY_OPTIMIZATIONS_CODE) {
             if (TracingManagerModule.pendingBatteryPromise != null) {
                 if (resultCode == Activity.RESULT_OK) {
@@ -442,6 +612,7 @@ public class TracingManagerModule extends ReactContextBaseJavaModule {
                     @Override
                     public void onSuccess(Void response) {
                         Log.d(TAG, "Exposed success");
+                        TracingStatusCache.invalidate();
                         SecureStorage secureStorage = SecureStorage.getInstance(context);
                         secureStorage.clearInformTimeAndCodeAndToken();
 
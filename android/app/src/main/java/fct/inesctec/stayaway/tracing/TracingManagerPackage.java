@@ -15,14 +15,21 @@ import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.uimanager.ViewManager;
 
-import java.util.Arrays;
+import fct.inesctec.stayaway.BuildConfig;
+
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 public class TracingManagerPackage implements ReactPackage {
     @Override
     public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        return Arrays.<NativeModule>asList(new TracingManagerModule(reactContext));
+        List<NativeModule> modules = new ArrayList<>();
+        modules.add(new TracingManagerModule(reactContext));
+        if (BuildConfig.SYNC_TRACING_MODULE) {
+            modules.add(new TracingManagerSyncModule(reactContext));
+        }
+        return modules;
     }
 
     @Override
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+
+import org.dpppt.android.sdk.DP3T;
+
+import fct.inesctec.stayaway.tracing.internal.metrics.Metrics;
+import fct.inesctec.stayaway.tracing.internal.status.StatusEventEncoder;
+import fct.inesctec.stayaway.tracing.internal.util.DeviceInfo;
+import fct.inesctec.stayaway.tracing.internal.util.WritableMapHelper;
+
+/**
+ * Synchronous accessors for the cheap reads of {@link TracingManagerModule}, only registered next
+ * to it when the app is built with -PsyncTracingModule.
+ *
+ * The accessors run on the JS thread and return without a bridge round trip, so they only serve
+ * what is already in memory and never wait for an SDK read. The asynchronous methods of
+ * TracingManager remain for everything else, and as the fallback when an accessor returns null.
+ * Like any synchronous native method, these do not work while debugging JS remotely in Chrome.
+ */
+public class TracingManagerSyncModule extends ReactContextBaseJavaModule {
+
+    TracingManagerSyncModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return "TracingManagerSync";
+    }
+
+    /**
+     * Same as isTracingEnabled, read from the SDK preferences, which are kept in memory.
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public boolean isTracingEnabledSync() {
+        Metrics.bridgeCall("isTracingEnabledSync");
+        return DP3T.isTracingEnabled(getReactApplicationContext());
+    }
+
+    /**
+     * Same as getStatus when the status is cached, null otherwise.
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getStatusSync() {
+        Metrics.bridgeCall("getStatusSync");
+        return StatusEventEncoder.encodeCachedSnapshot();
+    }
+
+    /**
+     * Same as getInfo.
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getInfoSync() {
+        Metrics.bridgeCall("getInfoSync");
+        return WritableMapHelper.wrapDeviceInfo(DeviceInfo.getInstance());
+    }
+}
@@ -17,27 +17,29 @@ import androidx.annotation.Nullable;
 import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 
-import org.dpppt.android.sdk.DP3T;
-import org.dpppt.android.sdk.TracingStatus;
-
 import fct.inesctec.stayaway.tracing.TracingManagerModule;
-import fct.inesctec.stayaway.tracing.internal.util.WritableMapHelper;
+import fct.inesctec.stayaway.tracing.internal.status.StatusEventEncoder;
 
 public class BroadcastHelper {
     public static void sendUpdateBroadcast(Context context) {
-        TracingStatus status = DP3T.getStatus(context);
+        ReactContext reactContext = TracingManagerModule.getReactContext();
+        if (reactContext == null || !reactContext.hasActiveCatalystInstance()) {
+            // Nobody listens, do not read nor encode the status
+            return;
+        }
 
-        sendEvent(TracingManagerModule.getReactContext(),
+        sendEvent(reactContext,
                 TracingManagerModule.UPDATE_EVENT,
-                WritableMapHelper.wrapTracingStatus(status));
+                StatusEventEncoder.encodeUpdate(context));
     }
+
     /**
      * Send events to Javascript
      * @param reactContext
      * @param eventName
      * @param params
      */
-    private static void sendEvent(ReactContext reactContext,
+    static void sendEvent(ReactContext reactContext,
                            String eventName,
                            @Nullable Object params) {
 
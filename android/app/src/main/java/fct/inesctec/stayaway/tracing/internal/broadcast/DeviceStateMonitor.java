@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.broadcast;
+
+import android.bluetooth.BluetoothAdapter;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.location.LocationManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import org.dpppt.android.sdk.internal.util.LocationServiceUtil;
+
+import fct.inesctec.stayaway.tracing.TracingManagerModule;
+import fct.inesctec.stayaway.tracing.internal.util.BackgroundExecutor;
+import fct.inesctec.stayaway.tracing.internal.util.DeviceFeatureHelper;
+
+/**
+ * Pushes Bluetooth, location and battery optimization changes to JS while it listens.
+ *
+ * System receivers are only registered between the first start and the last stop. Bursts of
+ * broadcasts, e.g. Bluetooth going through its turning on and on states, are debounced into a
+ * single event, and an event is only sent when the state actually changed:
+ *
+ * @example
+ * {
+ *     bluetoothServiceEnabled : boolean
+ *     locationServiceEnabled : boolean
+ *     ignoringBatteryOptimizations : boolean
+ *     powerSaveMode : boolean
+ * }
+ *
+ * There is no broadcast for the battery optimization whitelist, it is checked again whenever the
+ * app comes back to the foreground, which is how the user returns from the settings.
+ */
+public class DeviceStateMonitor {
+
+    private static final long DEBOUNCE_MILLIS = 300;
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static final Runnable emitRunnable = DeviceStateMonitor::emitIfChanged;
+
+    private static int listenerCount = 0;
+    private static BroadcastReceiver receiver;
+    private static LifecycleEventListener lifecycleListener;
+    private static ReactContext listeningContext;
+
+    private static String lastStateKey;
+
+    public static synchronized void start(@NonNull ReactContext reactContext) {
+        if (listenerCount++ > 0) return;
+
+        listeningContext = reactContext;
+        receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                onChanged();
+            }
+        };
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(BluetoothAdapter.ACTION_STATE_CHANGED);
+        filter.addAction(LocationManager.MODE_CHANGED_ACTION);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        filter.addAction(PowerManager.ACTION_DEVICE_IDLE_MODE_CHANGED);
+        reactContext.registerReceiver(receiver, filter);
+
+        lifecycleListener = new LifecycleEventListener() {
+            @Override
+            public void onHostResume() {
+                onChanged();
+            }
+
+            @Override
+            public void onHostPause() {
+            }
+
+            @Override
+            public void onHostDestroy() {
+            }
+        };
+        reactContext.addLifecycleEventListener(lifecycleListener);
+
+        // The first event carries the current state
+        lastStateKey = null;
+        onChanged();
+    }
+
+    public static synchronized void stop() {
+        if (listenerCount == 0 || --listenerCount > 0) return;
+
+        handler.removeCallbacks(emitRunnable);
+        listeningContext.unregisterReceiver(receiver);
+        listeningContext.removeLifecycleEventListener(lifecycleListener);
+        receiver = null;
+        lifecycleListener = null;
+        listeningContext = null;
+    }
+
+    /**
+     * Schedule a check of the device state, e.g. after returning from a settings screen.
+     */
+    public static synchronized void onChanged() {
+        if (listeningContext == null) return;
+        handler.removeCallbacks(emitRunnable);
+        handler.postDelayed(emitRunnable, DEBOUNCE_MILLIS);
+    }
+
+    private static void emitIfChanged() {
+        ReactContext reactContext;
+        synchronized (DeviceStateMonitor.class) {
+            reactContext = listeningContext;
+        }
+        if (reactContext == null) return;
+
+        BackgroundExecutor.execute(() -> {
+            boolean bluetoothEnabled = DeviceFeatureHelper.isBluetoothEnabled();
+            boolean locationEnabled = LocationServiceUtil.isLocationEnabled(reactContext);
+            boolean ignoringBatteryOptimizations = DeviceFeatureHelper.isBatteryOptimizationDeactivated(reactContext);
+            PowerManager powerManager = (PowerManager) reactContext.getSystemService(Context.POWER_SERVICE);
+            boolean powerSaveMode = powerManager != null && powerManager.isPowerSaveMode();
+
+            String stateKey = "" + bluetoothEnabled + locationEnabled + ignoringBatteryOptimizations + powerSaveMode;
+            synchronized (DeviceStateMonitor.class) {
+                if (listeningContext != reactContext || stateKey.equals(lastStateKey)) return;
+                lastStateKey = stateKey;
+            }
+
+            WritableMap state = new WritableNativeMap();
+            state.putBoolean("bluetoothServiceEnabled", bluetoothEnabled);
+            state.putBoolean("locationServiceEnabled", locationEnabled);
+            state.putBoolean("ignoringBatteryOptimizations", ignoringBatteryOptimizations);
+            state.putBoolean("powerSaveMode", powerSaveMode);
+            BroadcastHelper.sendEvent(reactContext, TracingManagerModule.DEVICE_STATE_EVENT, state);
+        });
+    }
+}
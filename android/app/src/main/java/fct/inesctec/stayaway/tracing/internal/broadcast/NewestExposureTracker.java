@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.broadcast;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import org.dpppt.android.sdk.models.ExposureDay;
+
+import java.util.List;
+
+import fct.inesctec.stayaway.tracing.internal.storage.SecureStorage;
+
+/**
+ * Keeps track of the newest exposure day and of the one the user was last notified about.
+ *
+ * The SDK gives exposure days increasing ids, but does not guarantee the order of the list, so
+ * every update is a single pass over all days. The persisted watermark holds the newest day, its
+ * date and the highest id seen, so only the days added since are compared with the newest one, as
+ * long as that day is still there unchanged. When it is gone or its date changed (e.g. exposure
+ * days were reset) the newest of all days is used. The encrypted storage is only read once per
+ * process and only written when the watermark changed.
+ */
+public class NewestExposureTracker {
+
+    public static final int NONE = -1;
+
+    private static boolean loaded = false;
+
+    private static long newestTimestamp;
+    private static int newestId;
+    private static int seenId;
+    private static int lastShownId;
+
+    /**
+     * Update the watermark with the current exposure days.
+     *
+     * @return The id of the newest exposure day if the user was not notified about it yet, {@code NONE} otherwise
+     */
+    public static synchronized int update(@NonNull Context context, @NonNull List<ExposureDay> exposureDays) {
+        SecureStorage secureStorage = SecureStorage.getInstance(context);
+        if (!loaded) {
+            newestTimestamp = secureStorage.getNewestExposureTimestamp();
+            newestId = secureStorage.getNewestExposureId();
+            seenId = secureStorage.getNewestExposureSeenId();
+            lastShownId = secureStorage.getLastShownContactId();
+            loaded = true;
+        }
+
+        // Newest day if the stored one is still valid, from the days added since
+        long addedTimestamp = newestTimestamp;
+        int addedId = newestId;
+        boolean newestUnchanged = newestId == NONE;
+        // Newest of all days, in case it is not
+        long allTimestamp = 0;
+        int allId = NONE;
+        int lastId = NONE;
+
+        for (ExposureDay day : exposureDays) {
+            long dayTimestamp = day.getExposedDate().getStartOfDayTimestamp();
+            if (day.getId() == newestId && dayTimestamp == newestTimestamp) {
+                newestUnchanged = true;
+            }
+            if (day.getId() > seenId && dayTimestamp > addedTimestamp) {
+                addedTimestamp = dayTimestamp;
+                addedId = day.getId();
+            }
+            if (dayTimestamp > allTimestamp) {
+                allTimestamp = dayTimestamp;
+                allId = day.getId();
+            }
+            lastId = Math.max(lastId, day.getId());
+        }
+
+        long timestamp = newestUnchanged ? addedTimestamp : allTimestamp;
+        int id = newestUnchanged ? addedId : allId;
+
+        boolean changed = timestamp != newestTimestamp || id != newestId || lastId != seenId;
+        newestTimestamp = timestamp;
+        newestId = id;
+        seenId = lastId;
+
+        if (id != NONE && id != lastShownId) {
+            // Persisted together with the shown id in markShown
+            return id;
+        }
+
+        if (changed) {
+            secureStorage.edit(batch -> batch.setNewestExposure(newestTimestamp, newestId, seenId));
+        }
+        return NONE;
+    }
+
+    /**
+     * Record that the user was notified about an exposure day.
+     */
+    public static synchronized void markShown(@NonNull Context context, int contactId) {
+        lastShownId = contactId;
+        SecureStorage.getInstance(context).edit(batch -> batch
+                .setNewestExposure(newestTimestamp, newestId, seenId)
+                .setLastShownContactId(contactId));
+    }
+}
@@ -22,6 +22,7 @@ import androidx.core.app.NotificationCompat;
 
 import fct.inesctec.stayaway.MainActivity;
 import fct.inesctec.stayaway.R;
+import fct.inesctec.stayaway.tracing.internal.metrics.Metrics;
 import fct.inesctec.stayaway.tracing.internal.util.NotificationUtil;
 
 public class SyncErrorBroadcastReceiver extends BroadcastReceiver {
@@ -56,5 +57,6 @@ public class SyncErrorBroadcastReceiver extends BroadcastReceiver {
         NotificationManager notificationManager =
                 (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         notificationManager.notify(NotificationUtil.NOTIFICATION_ID_SYNC_ERROR, notification);
+        Metrics.notificationShown("sync_error");
     }
 }
@@ -25,11 +25,13 @@ import androidx.core.app.NotificationCompat;
 import org.dpppt.android.sdk.DP3T;
 import org.dpppt.android.sdk.InfectionStatus;
 import org.dpppt.android.sdk.TracingStatus;
-import org.dpppt.android.sdk.models.ExposureDay;
 
 import fct.inesctec.stayaway.MainActivity;
 import fct.inesctec.stayaway.R;
-import fct.inesctec.stayaway.tracing.internal.storage.SecureStorage;
+import fct.inesctec.stayaway.tracing.internal.metrics.Metrics;
+import fct.inesctec.stayaway.tracing.internal.scheduling.WakeupCoordinator;
+import fct.inesctec.stayaway.tracing.internal.status.TracingStatusCache;
+import fct.inesctec.stayaway.tracing.internal.util.BackgroundExecutor;
 import fct.inesctec.stayaway.tracing.internal.util.NotificationUtil;
 
 public class UpdateEventBroadcastReceiver extends BroadcastReceiver {
@@ -38,31 +40,38 @@ public class UpdateEventBroadcastReceiver extends BroadcastReceiver {
         if (! DP3T.ACTION_UPDATE.equals(intent.getAction()))
             return;
 
+        // Read the new status once, both JS and the notification below are served from the cache
+        TracingStatusCache.invalidate();
+
+        // Reading the status and the storage is too slow for the main thread
+        PendingResult pendingResult = goAsync();
+        BackgroundExecutor.execute(() -> {
+            try {
+                handleUpdate(context);
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
+
+    private static void handleUpdate(Context context) {
         BroadcastHelper.sendUpdateBroadcast(context);
 
-        SecureStorage secureStorage = SecureStorage.getInstance(context);
-        TracingStatus status = DP3T.getStatus(context);
+        TracingStatus status = TracingStatusCache.getStatus(context);
         if (status.getInfectionStatus() == InfectionStatus.EXPOSED) {
-            ExposureDay exposureDay = null;
-            long dateNewest = 0;
-            for (ExposureDay day : status.getExposureDays()) {
-                if (day.getExposedDate().getStartOfDayTimestamp() > dateNewest) {
-                    exposureDay = day;
-                    dateNewest = day.getExposedDate().getStartOfDayTimestamp();
-                }
-            }
-            if (exposureDay != null && secureStorage.getLastShownContactId() != exposureDay.getId()) {
-                createExposedNotification(context, exposureDay.getId());
+            int contactId = NewestExposureTracker.update(context, status.getExposureDays());
+            if (contactId != NewestExposureTracker.NONE) {
+                createExposedNotification(context, contactId);
             }
         }
 
+        WakeupCoordinator.onUpdate(context, status);
+
         // Schedule sync error for two days from now
         scheduleSyncErrorNotification(context);
     }
 
     private static void createExposedNotification(Context context, int contactId) {
-        SecureStorage secureStorage = SecureStorage.getInstance(context);
-
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationUtil.createNotificationChannel(context);
         }
@@ -88,8 +97,9 @@ public class UpdateEventBroadcastReceiver extends BroadcastReceiver {
         NotificationManager notificationManager =
                 (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         notificationManager.notify(NotificationUtil.NOTIFICATION_ID_CONTACT, notification);
+        Metrics.notificationShown("exposed");
 
-        secureStorage.setLastShownContactId(contactId);
+        NewestExposureTracker.markShown(context, contactId);
     }
 
     private static void scheduleSyncErrorNotification(Context context) {
@@ -102,7 +112,7 @@ public class UpdateEventBroadcastReceiver extends BroadcastReceiver {
         // Create new notification
         long futureTimeMillis = SystemClock.elapsedRealtime() + 1000 * 60 * 60 * 24 * 2; // 2 days
 
-        // Schedule notification
-        alarmManager.set(AlarmManager.ELAPSED_REALTIME_WAKEUP, futureTimeMillis, pending);
+        // Schedule notification, a missed sync does not need to wake the device, it is shown on the next wake-up
+        alarmManager.set(AlarmManager.ELAPSED_REALTIME, futureTimeMillis, pending);
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in milliseconds, over fixed buckets.
+ */
+public class Histogram {
+
+    /**
+     * Inclusive upper bounds of the buckets, values above the last one go to an overflow bucket.
+     */
+    public static final long[] BOUNDS_MILLIS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+    private final Counter count = new Counter();
+    private final Counter sum = new Counter();
+
+    public void record(long millis) {
+        buckets.getAndIncrement(bucketOf(millis));
+        count.increment();
+        sum.add(millis);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Counts per bucket, the last one being the overflow bucket.
+     */
+    public long[] getBuckets() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    static int bucketOf(long millis) {
+        int low = 0;
+        int high = BOUNDS_MILLIS.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (millis <= BOUNDS_MILLIS[mid]) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
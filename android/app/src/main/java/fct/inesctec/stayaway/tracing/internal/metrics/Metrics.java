@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.metrics;
+
+/**
+ * Names of the metrics recorded by the native layer.
+ */
+public class Metrics {
+
+    public static final String CONFIG_FETCH = "config.fetch";
+    public static final String CONFIG_FETCH_NOT_MODIFIED = "config.fetch.not_modified";
+    public static final String CONFIG_FETCH_ERROR = "config.fetch.error";
+    public static final String CONFIG_FETCH_CIRCUIT_OPEN = "config.fetch.circuit_open";
+    public static final String CONFIG_FETCH_PIGGYBACKED = "config.fetch.piggybacked";
+    public static final String CONFIG_FETCH_SKIPPED = "config.fetch.skipped";
+    public static final String CONFIG_FETCH_LATENCY = "config.fetch.latency";
+
+    public static final String AUTH_CODE_REQUEST = "auth_code.request";
+    public static final String AUTH_CODE_REQUEST_ERROR = "auth_code.request.error";
+    public static final String AUTH_CODE_REQUEST_LATENCY = "auth_code.request.latency";
+
+    public static final String FAKE_REQUEST = "fake.request";
+    public static final String FAKE_REQUEST_ERROR = "fake.request.error";
+    public static final String FAKE_REQUEST_LATENCY = "fake.request.latency";
+
+    public static final String BACKEND_WARM_UP = "backend.warm_up";
+    public static final String BACKEND_WARM_UP_ERROR = "backend.warm_up.error";
+
+    public static final String SECURE_STORAGE_INIT_LATENCY = "secure_storage.init.latency";
+    public static final String SECURE_STORAGE_WRITE = "secure_storage.write";
+    // Encrypting and queueing a write, apply() writes the file to disk asynchronously
+    public static final String SECURE_STORAGE_APPLY_LATENCY = "secure_storage.apply.latency";
+
+    // Followed by the method name
+    public static final String BRIDGE_CALL = "bridge.call.";
+    // Followed by the notification kind
+    public static final String NOTIFICATION_SHOWN = "notification.shown.";
+
+    /**
+     * Name of an HTTP metric of a backend, see {@code BackendEventListener}.
+     */
+    public static String http(String backend, String name) {
+        return "http." + backend + "." + name;
+    }
+
+    public static void bridgeCall(String method) {
+        MetricsRegistry.counter(BRIDGE_CALL + method).increment();
+    }
+
+    public static void notificationShown(String kind) {
+        MetricsRegistry.counter(NOTIFICATION_SHOWN + kind).increment();
+    }
+}
@@ -21,66 +21,45 @@
 package fct.inesctec.stayaway.tracing.internal.networking;
 
 import android.content.Context;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 
-import org.dpppt.android.sdk.DP3T;
 import org.dpppt.android.sdk.backend.ResponseCallback;
-import org.dpppt.android.sdk.backend.UserAgentInterceptor;
 
-import java.io.IOException;
-
-import fct.inesctec.stayaway.BuildConfig;
+import fct.inesctec.stayaway.tracing.internal.metrics.Metrics;
+import fct.inesctec.stayaway.tracing.internal.metrics.MetricsRegistry;
 import fct.inesctec.stayaway.tracing.internal.networking.errors.InvalidCodeError;
 import fct.inesctec.stayaway.tracing.internal.networking.errors.ResponseError;
 import fct.inesctec.stayaway.tracing.internal.networking.models.AuthenticationCodeRequestModel;
 import fct.inesctec.stayaway.tracing.internal.networking.models.AuthenticationCodeResponseModel;
-import okhttp3.Cache;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
 
 public class AuthCodeRepository {
 
     private AuthCodeService authCodeService;
 
     public AuthCodeRepository(@NonNull Context context) {
-
-        OkHttpClient.Builder okHttpBuilder = new OkHttpClient.Builder();
-        okHttpBuilder.addInterceptor(chain -> {
-            Request request = chain.request()
-                    .newBuilder()
-                    .build();
-            return chain.proceed(request);
-        });
-
-        int cacheSize = 5 * 1024 * 1024; // 5 MB
-        Cache cache = new Cache(context.getCacheDir(), cacheSize);
-        okHttpBuilder.cache(cache);
-
-        okHttpBuilder.certificatePinner(CertificatePinning.getCertificatePinner());
-        okHttpBuilder.addInterceptor(new UserAgentInterceptor(DP3T.getUserAgent()));
-
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(BuildConfig.BACKEND_AUTH_CODE_URL)
-                .client(okHttpBuilder.build())
-                .addConverterFactory(GsonConverterFactory.create())
-                .build();
-
-        authCodeService = retrofit.create(AuthCodeService.class);
+        authCodeService = BackendClient.getInstance(context).getAuthCodeService();
     }
 
-    public void getAccessToken(@NonNull AuthenticationCodeRequestModel authenticationCode,
-                               @NonNull ResponseCallback<AuthenticationCodeResponseModel> callbackListener) {
+    /**
+     * @return The call in flight, which can be cancelled
+     */
+    public Call<AuthenticationCodeResponseModel> getAccessToken(@NonNull AuthenticationCodeRequestModel authenticationCode,
+                                                                @NonNull ResponseCallback<AuthenticationCodeResponseModel> callbackListener) {
+
+        MetricsRegistry.counter(Metrics.AUTH_CODE_REQUEST).increment();
+        long startTime = SystemClock.elapsedRealtime();
 
-        authCodeService.getAccessToken(authenticationCode).enqueue(new Callback<AuthenticationCodeResponseModel>() {
+        Call<AuthenticationCodeResponseModel> call = authCodeService.getAccessToken(authenticationCode);
+        call.enqueue(new Callback<AuthenticationCodeResponseModel>() {
             @Override
             public void onResponse(Call<AuthenticationCodeResponseModel> call,
                                    Response<AuthenticationCodeResponseModel> response) {
+                MetricsRegistry.histogram(Metrics.AUTH_CODE_REQUEST_LATENCY).record(SystemClock.elapsedRealtime() - startTime);
                 if (response.isSuccessful()) {
                     callbackListener.onSuccess(response.body());
                 } else {
@@ -94,16 +73,11 @@ public class AuthCodeRepository {
 
             @Override
             public void onFailure(Call<AuthenticationCodeResponseModel> call, Throwable t) {
+                MetricsRegistry.counter(Metrics.AUTH_CODE_REQUEST_ERROR).increment();
                 callbackListener.onError(t);
             }
         });
-    }
-
-    public AuthenticationCodeResponseModel getAccessTokenSync(@NonNull AuthenticationCodeRequestModel authenticationCode)
-            throws IOException, ResponseError {
-        Response<AuthenticationCodeResponseModel> response = authCodeService.getAccessToken(authenticationCode).execute();
-        if (!response.isSuccessful()) throw new ResponseError(response.raw());
-        return response.body();
+        return call;
     }
 
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import org.dpppt.android.sdk.DP3T;
+import org.dpppt.android.sdk.backend.UserAgentInterceptor;
+
+import java.io.File;
+
+import fct.inesctec.stayaway.BuildConfig;
+import fct.inesctec.stayaway.tracing.internal.util.BackgroundExecutor;
+import okhttp3.Cache;
+import okhttp3.CertificatePinner;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Process-wide networking core shared by every StayAway backend.
+ *
+ * Owns a single connection pool, dispatcher and disk cache. Each backend gets a client derived
+ * from the shared one, so auth code and config requests reuse warm connections and TLS sessions
+ * instead of paying for a new handshake on every repository instance.
+ */
+public class BackendClient {
+
+    private static final long CACHE_SIZE = 5 * 1024 * 1024; // 5 MB
+    private static final String DNS_CACHE_FILE = "dns_cache";
+
+    // Names of the backends in the metrics
+    public static final String BACKEND_AUTH_CODE = "auth_code";
+    public static final String BACKEND_CONFIG = "config";
+
+    private static volatile BackendClient instance;
+
+    private final OkHttpClient httpClient;
+    private final String authCodeUrl;
+    private final String configUrl;
+    @Nullable
+    private final PersistentDns persistentDns;
+
+    private CertificatePinner authCodePinner;
+    private OkHttpClient authCodeClient;
+    private AuthCodeService authCodeService;
+    private ConfigService configService;
+
+    @VisibleForTesting
+    BackendClient(@NonNull File cacheDir, @NonNull String authCodeUrl, @NonNull String configUrl) {
+        this(cacheDir, Dns.SYSTEM, null, authCodeUrl, configUrl);
+    }
+
+    BackendClient(@NonNull File cacheDir, @NonNull Dns dns, @Nullable PersistentTls tls,
+                  @NonNull String authCodeUrl, @NonNull String configUrl) {
+        this.authCodeUrl = authCodeUrl;
+        this.configUrl = configUrl;
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool())
+                .dispatcher(new Dispatcher())
+                .cache(new Cache(cacheDir, CACHE_SIZE))
+                .dns(dns);
+        if (tls != null) {
+            builder.sslSocketFactory(tls.getSocketFactory(), tls.getTrustManager());
+        }
+        httpClient = builder.build();
+        persistentDns = dns instanceof PersistentDns ? (PersistentDns) dns : null;
+    }
+
+    public static BackendClient getInstance(@NonNull Context context) {
+        BackendClient client = instance;
+        if (client == null) {
+            synchronized (BackendClient.class) {
+                client = instance;
+                if (client == null) {
+                    // DNS answers and TLS sessions outlive the process, which is restarted for most background work
+                    File cacheDir = context.getApplicationContext().getCacheDir();
+                    PersistentDns dns = new PersistentDns(new File(cacheDir, DNS_CACHE_FILE), Dns.SYSTEM,
+                            BackgroundExecutor::execute, System::currentTimeMillis);
+                    client = new BackendClient(cacheDir, dns, PersistentTls.create(context),
+                            BuildConfig.BACKEND_AUTH_CODE_URL, BuildConfig.BACKEND_CONFIG_URL);
+                    instance = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Get the shared client. Per-backend clients must be derived from it with
+     * {@link OkHttpClient#newBuilder()} so they keep sharing the pool, dispatcher and cache.
+     */
+    public OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Get the pinned client of the auth code backend.
+     */
+    public synchronized OkHttpClient getAuthCodeHttpClient() {
+        // The pinner can be toggled at runtime on debug builds, rebuild the client when it changes
+        CertificatePinner pinner = CertificatePinning.getCertificatePinner();
+        if (authCodeClient == null || authCodePinner != pinner) {
+            authCodeClient = httpClient.newBuilder()
+                    .certificatePinner(pinner)
+                    .addInterceptor(new UserAgentInterceptor(DP3T.getUserAgent()))
+                    .addInterceptor(new TrafficStatsInterceptor(TrafficStatsInterceptor.TAG_AUTH_CODE))
+                    .eventListenerFactory(BackendEventListener.factory(BACKEND_AUTH_CODE, persistentDns))
+                    .build();
+            authCodePinner = pinner;
+            authCodeService = null;
+        }
+        return authCodeClient;
+    }
+
+    public synchronized AuthCodeService getAuthCodeService() {
+        OkHttpClient client = getAuthCodeHttpClient();
+        if (authCodeService == null) {
+            authCodeService = createService(authCodeUrl, client, AuthCodeService.class);
+        }
+        return authCodeService;
+    }
+
+    public synchronized ConfigService getConfigService() {
+        if (configService == null) {
+            OkHttpClient client = httpClient.newBuilder()
+                    .addInterceptor(new TrafficStatsInterceptor(TrafficStatsInterceptor.TAG_CONFIG))
+                    .eventListenerFactory(BackendEventListener.factory(BACKEND_CONFIG, persistentDns))
+                    .build();
+
+            configService = createService(configUrl, client, ConfigService.class);
+        }
+        return configService;
+    }
+
+    static <T> T createService(@NonNull String baseUrl, @NonNull OkHttpClient client, @NonNull Class<T> service) {
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create())
+                .build();
+
+        return retrofit.create(service);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import fct.inesctec.stayaway.tracing.internal.metrics.Metrics;
+import fct.inesctec.stayaway.tracing.internal.metrics.MetricsRegistry;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Records the phases and byte counts of every call to a backend in the {@link MetricsRegistry}.
+ *
+ * Histograms are named {@code http.<backend>.<phase>}, with phases dns, connect, tls (which
+ * includes certificate pinning), ttfb (from call start to the response headers), body and total.
+ * Counters cover calls, failures, new connections and bytes sent and received.
+ *
+ * Failed connections are also reported to the {@link PersistentDns} resolver, if the client uses
+ * one, so it does not keep serving an address that no longer works.
+ */
+public class BackendEventListener extends EventListener {
+
+    private final String backend;
+    @Nullable
+    private final PersistentDns dns;
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long responseBodyStart;
+
+    private BackendEventListener(String backend, @Nullable PersistentDns dns) {
+        this.backend = backend;
+        this.dns = dns;
+    }
+
+    /**
+     * Create a factory giving each call its own listener, calls are not shared between threads.
+     */
+    public static EventListener.Factory factory(@NonNull String backend, @Nullable PersistentDns dns) {
+        return call -> new BackendEventListener(backend, dns);
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = now();
+        MetricsRegistry.counter(Metrics.http(backend, "calls")).increment();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = now();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        record("dns", dnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = now();
+        MetricsRegistry.counter(Metrics.http(backend, "connections")).increment();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureConnectStart = now();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        record("tls", secureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        record("connect", connectStart);
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe) {
+        record("connect", connectStart);
+        MetricsRegistry.counter(Metrics.http(backend, "connect_failures")).increment();
+        if (dns != null) {
+            dns.onConnectFailed(call.request().url().host(), inetSocketAddress.getAddress());
+        }
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        MetricsRegistry.counter(Metrics.http(backend, "bytes_sent")).add(byteCount);
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        record("ttfb", callStart);
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        MetricsRegistry.counter(Metrics.http(backend, "status_" + response.code())).increment();
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+        responseBodyStart = now();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        record("body", responseBodyStart);
+        MetricsRegistry.counter(Metrics.http(backend, "bytes_received")).add(byteCount);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        record("total", callStart);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        record("total", callStart);
+        MetricsRegistry.counter(Metrics.http(backend, "failures")).increment();
+    }
+
+    private void record(String phase, long start) {
+        MetricsRegistry.histogram(Metrics.http(backend, phase)).record(now() - start);
+    }
+
+    private static long now() {
+        return SystemClock.elapsedRealtime();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import org.dpppt.android.sdk.internal.logger.Logger;
+
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+import fct.inesctec.stayaway.BuildConfig;
+import fct.inesctec.stayaway.tracing.internal.metrics.Metrics;
+import fct.inesctec.stayaway.tracing.internal.metrics.MetricsRegistry;
+import fct.inesctec.stayaway.tracing.internal.util.BackgroundExecutor;
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+
+/**
+ * Prepares what a positive test upload needs while the user is still typing the code.
+ *
+ * Everything stays on the device: the pinned auth code client and its TLS context are built,
+ * which loads the persisted TLS sessions, and both backend hosts are resolved. No request is sent,
+ * as the fake uploads of {@link FakeWorker} would not send it and it would set real submissions
+ * apart on the network. The report upload goes through the DP3T SDK's own client, so its host
+ * is only resolved to fill the system DNS cache.
+ */
+public class BackendWarmUp {
+
+    private static final String TAG = "BackendWarmUp";
+
+    // Everything warmed up stays usable for longer, opening the screen again within 5 minutes has nothing to do
+    private static final long MIN_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static long lastWarmUp = -MIN_INTERVAL_MILLIS;
+
+    public static void warmUp(@NonNull Context context) {
+        synchronized (BackendWarmUp.class) {
+            long now = SystemClock.elapsedRealtime();
+            if (now - lastWarmUp < MIN_INTERVAL_MILLIS) return;
+            lastWarmUp = now;
+        }
+
+        MetricsRegistry.counter(Metrics.BACKEND_WARM_UP).increment();
+        Context applicationContext = context.getApplicationContext();
+        BackgroundExecutor.execute(() -> {
+            BackendClient client = BackendClient.getInstance(applicationContext);
+            client.getAuthCodeHttpClient();
+            resolve(client.getHttpClient().dns(), BuildConfig.BACKEND_AUTH_CODE_URL);
+            resolve(Dns.SYSTEM, BuildConfig.BACKEND_REPORT_URL);
+        });
+    }
+
+    private static void resolve(Dns dns, String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) return;
+        try {
+            dns.lookup(httpUrl.host());
+        } catch (UnknownHostException e) {
+            Logger.d(TAG, "could not resolve " + httpUrl.host());
+            MetricsRegistry.counter(Metrics.BACKEND_WARM_UP_ERROR).increment();
+        }
+    }
+}
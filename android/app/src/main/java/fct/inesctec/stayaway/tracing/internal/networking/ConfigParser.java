@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import fct.inesctec.stayaway.tracing.internal.networking.models.ConfigResponseModel;
+import fct.inesctec.stayaway.tracing.internal.networking.proto.Config;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/**
+ * Parses the config in the format the backend answered with.
+ */
+public class ConfigParser {
+
+    private static final String SUBTYPE_PROTOBUF = "x-protobuf";
+
+    private static final Gson gson = new Gson();
+
+    public static ConfigResponseModel parse(@NonNull ResponseBody body) throws IOException {
+        MediaType contentType = body.contentType();
+        if (contentType != null && SUBTYPE_PROTOBUF.equals(contentType.subtype())) {
+            return ConfigResponseModel.fromProto(Config.parseFrom(body.byteStream()));
+        }
+
+        // Backends without protobuf support answer with JSON
+        try (Reader reader = body.charStream()) {
+            ConfigResponseModel config = gson.fromJson(reader, ConfigResponseModel.class);
+            if (config == null) throw new IOException("empty config");
+            return config;
+        } catch (JsonParseException e) {
+            throw new IOException("invalid config", e);
+        }
+    }
+}
@@ -25,52 +25,69 @@ import android.os.Build;
 
 import androidx.annotation.NonNull;
 
-import org.dpppt.android.sdk.DP3T;
-import org.dpppt.android.sdk.backend.UserAgentInterceptor;
-
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
 
 import fct.inesctec.stayaway.BuildConfig;
 import fct.inesctec.stayaway.tracing.internal.networking.errors.ResponseError;
 import fct.inesctec.stayaway.tracing.internal.networking.models.ConfigResponseModel;
 import fct.inesctec.stayaway.tracing.internal.storage.SecureStorage;
-import okhttp3.Cache;
-import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
 import retrofit2.Response;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
 
 public class ConfigRepository {
     private ConfigService configService;
     private SecureStorage secureStorage;
 
     public ConfigRepository(@NonNull Context context) {
-        OkHttpClient.Builder okHttpBuilder = new OkHttpClient.Builder();
-
-        int cacheSize = 2 * 1024 * 1024; // 2 MB
-        Cache cache = new Cache(context.getCacheDir(), cacheSize);
-        okHttpBuilder.cache(cache);
-
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(BuildConfig.BACKEND_CONFIG_URL)
-                .client(okHttpBuilder.build())
-                .addConverterFactory(GsonConverterFactory.create())
-                .build();
-
-        configService = retrofit.create(ConfigService.class);
+        configService = BackendClient.getInstance(context).getConfigService();
         secureStorage = SecureStorage.getInstance(context);
     }
 
-    public ConfigResponseModel getConfig() throws IOException, ResponseError {
-        Response<ConfigResponseModel> configResponse = configService.getConfig().execute();
-        if (configResponse.isSuccessful()) {
-            secureStorage.setLastConfigLoadSuccess(System.currentTimeMillis());
-            secureStorage.setLastConfigLoadSuccessAppVersion(BuildConfig.VERSION_CODE);
-			secureStorage.setLastConfigLoadSuccessSdkInt(Build.VERSION.SDK_INT);
-            return configResponse.body();
+    public ConfigResult getConfig() throws IOException, ResponseError {
+        // Validators are only sent for the same build, a new app or SDK version always gets a full config
+        String eTag = null;
+        String lastModified = null;
+        if (secureStorage.getLastConfigLoadSuccessAppVersion() == BuildConfig.VERSION_CODE &&
+                secureStorage.getLastConfigLoadSuccessSdkInt() == Build.VERSION.SDK_INT) {
+            eTag = secureStorage.getConfigETag();
+            lastModified = secureStorage.getConfigLastModified();
+        }
+
+        Response<ResponseBody> configResponse = configService.getConfigNegotiated(eTag, lastModified).execute();
+        int maxAgeSeconds = configResponse.raw().cacheControl().maxAgeSeconds();
+        long maxAgeMillis = maxAgeSeconds < 0 ? -1 : TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+        if (configResponse.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            return ConfigResult.notModified(maxAgeMillis);
+        } else if (configResponse.isSuccessful()) {
+            ConfigResponseModel config;
+            try (ResponseBody body = configResponse.body()) {
+                config = ConfigParser.parse(body);
+            }
+            return ConfigResult.modified(config,
+                    configResponse.headers().get("ETag"), configResponse.headers().get("Last-Modified"), maxAgeMillis);
         } else {
             throw new ResponseError(configResponse.raw());
         }
     }
 
+    /**
+     * Record a successful sync. Meant to be committed in the same batch as the changes
+     * applied from the config, so validators are never stored for a half-applied config.
+     * The announced app version is kept too, a later 304 Not Modified still needs it.
+     */
+    public void recordSuccess(@NonNull SecureStorage.Batch batch, @NonNull ConfigResult result) {
+        batch.setLastConfigLoadSuccess(System.currentTimeMillis())
+                .setConfigMaxAge(result.getMaxAgeMillis());
+        if (result.isModified()) {
+            batch.setLastConfigLoadSuccessAppVersion(BuildConfig.VERSION_CODE)
+                    .setLastConfigLoadSuccessSdkInt(Build.VERSION.SDK_INT)
+                    .setConfigETag(result.getETag())
+                    .setConfigLastModified(result.getLastModified())
+                    .setConfigVersion(result.getConfig().getVersion().getName(),
+                            result.getConfig().getVersion().getBuild());
+        }
+    }
+
 }
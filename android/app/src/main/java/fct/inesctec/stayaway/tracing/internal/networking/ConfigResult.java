@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import androidx.annotation.Nullable;
+
+import fct.inesctec.stayaway.tracing.internal.networking.models.ConfigResponseModel;
+
+/**
+ * Outcome of a config sync. When the backend answers a conditional request with
+ * 304 Not Modified the config is not re-parsed and {@link #isModified()} is false.
+ */
+public class ConfigResult {
+
+    private final ConfigResponseModel config;
+    private final boolean modified;
+    private final String eTag;
+    private final String lastModified;
+    private final long maxAgeMillis;
+
+    private ConfigResult(ConfigResponseModel config, boolean modified, String eTag, String lastModified,
+                         long maxAgeMillis) {
+        this.config = config;
+        this.modified = modified;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    static ConfigResult modified(ConfigResponseModel config, @Nullable String eTag, @Nullable String lastModified,
+                                 long maxAgeMillis) {
+        return new ConfigResult(config, true, eTag, lastModified, maxAgeMillis);
+    }
+
+    static ConfigResult notModified(long maxAgeMillis) {
+        return new ConfigResult(null, false, null, null, maxAgeMillis);
+    }
+
+    public boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * Get the config. Null when the config was not modified, the fields still needed
+     * after a 304 are kept in {@code SecureStorage}.
+     */
+    @Nullable
+    public ConfigResponseModel getConfig() {
+        return config;
+    }
+
+    @Nullable
+    public String getETag() {
+        return eTag;
+    }
+
+    @Nullable
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Get the max-age of the response, -1 if it had none. Also sent along with 304 Not Modified.
+     */
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+}
@@ -20,16 +20,20 @@
 
 package fct.inesctec.stayaway.tracing.internal.networking;
 
-import fct.inesctec.stayaway.tracing.internal.networking.models.ConfigResponseModel;
-
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Headers;
-import retrofit2.http.Query;
 
 public interface ConfigService {
 
-    @Headers("Accept: application/json")
+    /**
+     * The config, in protobuf when the backend supports it and in JSON otherwise.
+     * Parsed according to the response Content-Type by {@link ConfigParser}.
+     */
+    @Headers("Accept: application/x-protobuf, application/json;q=0.9")
     @GET("config/defaultsv2.json")
-    Call<ConfigResponseModel> getConfig();
+    Call<ResponseBody> getConfigNegotiated(@Header("If-None-Match") String eTag,
+                                           @Header("If-Modified-Since") String lastModified);
 }
@@ -27,12 +27,16 @@ import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Build;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.core.app.NotificationCompat;
 import androidx.work.Constraints;
+import androidx.work.Data;
 import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
 import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
 import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkManager;
 import androidx.work.Worker;
@@ -50,38 +54,144 @@ import java.util.concurrent.TimeUnit;
 import fct.inesctec.stayaway.BuildConfig;
 import fct.inesctec.stayaway.MainActivity;
 import fct.inesctec.stayaway.R;
+import fct.inesctec.stayaway.tracing.internal.metrics.Metrics;
+import fct.inesctec.stayaway.tracing.internal.metrics.MetricsRegistry;
 import fct.inesctec.stayaway.tracing.internal.networking.errors.ResponseError;
 import fct.inesctec.stayaway.tracing.internal.networking.models.ConfigResponseModel;
 import fct.inesctec.stayaway.tracing.internal.networking.models.InfoBoxModel;
 import fct.inesctec.stayaway.tracing.internal.networking.models.VersionModel;
+import fct.inesctec.stayaway.tracing.internal.scheduling.ConfigSchedule;
+import fct.inesctec.stayaway.tracing.internal.scheduling.WakeupCoordinator;
 import fct.inesctec.stayaway.tracing.internal.storage.SecureStorage;
 import fct.inesctec.stayaway.tracing.internal.util.NotificationUtil;
 
 public class ConfigWorker extends Worker {
 
-    private static final int REPEAT_INTERVAL_CONFIG_DAYS = 1;
+    public static final int REPEAT_INTERVAL_CONFIG_DAYS = 1;
     private static final long MAX_AGE_OF_CONFIG_FOR_RELOAD_AT_APP_START = 2  * 24 * 60 * 60 * 1000L; // 2 days
 
     private static final String TAG = "ConfigWorker";
     private static final String WORK_TAG = "fct.inesctec.stayaway.ConfigWorker";
+    private static final String WORK_TAG_RETRY = "fct.inesctec.stayaway.ConfigWorker.retry";
+    private static final String WORK_TAG_CATCH_UP = "fct.inesctec.stayaway.ConfigWorker.catchup";
+
+    // Outdated configs are loaded within this window, so installs updated together do not load together
+    private static final long CATCH_UP_SPREAD_MILLIS = TimeUnit.HOURS.toMillis(2);
+
+    private static final String KEY_ATTEMPT = "attempt";
+
+    private static RetryPolicy retryPolicy;
 
     public static void scheduleConfigWorkerIfOutdated(Context context) {
         SecureStorage secureStorage = SecureStorage.getInstance(context);
-		if (secureStorage.getLastConfigLoadSuccess() < System.currentTimeMillis() - MAX_AGE_OF_CONFIG_FOR_RELOAD_AT_APP_START ||
-				secureStorage.getLastConfigLoadSuccessAppVersion() != BuildConfig.VERSION_CODE ||
-				secureStorage.getLastConfigLoadSuccessSdkInt() != Build.VERSION.SDK_INT) {
-			Constraints constraints = new Constraints.Builder()
-					.setRequiredNetworkType(NetworkType.CONNECTED)
-					.build();
+        long now = System.currentTimeMillis();
+        long intervalMillis = ConfigSchedule.getIntervalMillis(secureStorage.getConfigMaxAge());
+        boolean outdated = secureStorage.getLastConfigLoadSuccess() < now - MAX_AGE_OF_CONFIG_FOR_RELOAD_AT_APP_START ||
+                !isConfigForCurrentBuild(secureStorage);
+        if (!outdated && secureStorage.getConfigScheduledInterval() == intervalMillis) return;
+
+        // Every install loads at its own phase of the interval, which survives rescheduling
+        String installId = secureStorage.getInstallId();
+        long flexMillis = ConfigSchedule.getFlexMillis(intervalMillis);
+        long phaseMillis = ConfigSchedule.getPhaseMillis(installId, intervalMillis);
+
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        PeriodicWorkRequest periodicWorkRequest =
+                new PeriodicWorkRequest.Builder(ConfigWorker.class, intervalMillis, TimeUnit.MILLISECONDS,
+                        flexMillis, TimeUnit.MILLISECONDS)
+                        .setConstraints(constraints)
+                        .setInitialDelay(ConfigSchedule.getInitialDelayMillis(now, phaseMillis, intervalMillis, flexMillis),
+                                TimeUnit.MILLISECONDS)
+                        .build();
+
+        WorkManager workManager = WorkManager.getInstance(context);
+        workManager.enqueueUniquePeriodicWork(WORK_TAG, ExistingPeriodicWorkPolicy.REPLACE, periodicWorkRequest);
+        secureStorage.setConfigScheduledInterval(intervalMillis);
+
+        if (outdated) {
+            // The first periodic load may be a whole interval away
+            loadConfigOnce(context, WORK_TAG_CATCH_UP, ConfigSchedule.getPhaseMillis(installId, CATCH_UP_SPREAD_MILLIS));
+        }
+    }
+
+    /**
+     * Whether the last config was loaded by this app version on this Android version.
+     */
+    public static boolean isConfigForCurrentBuild(SecureStorage secureStorage) {
+        return secureStorage.getLastConfigLoadSuccessAppVersion() == BuildConfig.VERSION_CODE &&
+                secureStorage.getLastConfigLoadSuccessSdkInt() == Build.VERSION.SDK_INT;
+    }
+
+    /**
+     * Load the config once as soon as there is network, outside of the periodic schedule.
+     */
+    public static void loadConfigOnce(Context context, String uniqueWorkName) {
+        loadConfigOnce(context, uniqueWorkName, 0);
+    }
+
+    /**
+     * Load the config once after a delay, as soon as there is network. A pending load of the same name is kept.
+     */
+    public static void loadConfigOnce(Context context, String uniqueWorkName, long delayMillis) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        OneTimeWorkRequest workRequest = new OneTimeWorkRequest.Builder(ConfigWorker.class)
+                .setConstraints(constraints)
+                .setInitialDelay(delayMillis, TimeUnit.MILLISECONDS)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(uniqueWorkName, ExistingWorkPolicy.KEEP, workRequest);
+    }
+
+    /**
+     * Get the retry policy, with the circuit state saved by the previous processes.
+     */
+    private static synchronized RetryPolicy getRetryPolicy(Context context) {
+        if (retryPolicy == null) {
+            SecureStorage secureStorage = SecureStorage.getInstance(context);
+            retryPolicy = RetryPolicy.forConfig();
+            retryPolicy.restore(secureStorage.getConfigConsecutiveFailures(), secureStorage.getConfigCircuitOpenUntil());
+        }
+        return retryPolicy;
+    }
+
+    private static void saveCircuit(Context context, RetryPolicy policy) {
+        SecureStorage secureStorage = SecureStorage.getInstance(context);
+        int failures = policy.getConsecutiveFailures();
+        long openUntil = policy.getOpenUntil();
+        if (secureStorage.getConfigConsecutiveFailures() == failures && secureStorage.getConfigCircuitOpenUntil() == openUntil) {
+            return;
+        }
+        secureStorage.edit(batch -> batch.setConfigCircuit(failures, openUntil));
+    }
 
-			PeriodicWorkRequest periodicWorkRequest =
-					new PeriodicWorkRequest.Builder(ConfigWorker.class, REPEAT_INTERVAL_CONFIG_DAYS, TimeUnit.DAYS)
-							.setConstraints(constraints)
-							.build();
+    private static void scheduleRetry(Context context, int attempt, long delayMillis) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        OneTimeWorkRequest workRequest = new OneTimeWorkRequest.Builder(ConfigWorker.class)
+                .setConstraints(constraints)
+                .setInitialDelay(delayMillis, TimeUnit.MILLISECONDS)
+                .setInputData(new Data.Builder().putInt(KEY_ATTEMPT, attempt).build())
+                .build();
+
+        // A retry scheduling the next one is still running under the same name, replacing it would
+        // cancel it. The next retry is chained after it instead, and runs once it succeeds.
+        ExistingWorkPolicy policy = attempt > 1 ? ExistingWorkPolicy.APPEND_OR_REPLACE : ExistingWorkPolicy.REPLACE;
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_TAG_RETRY, policy, workRequest);
+    }
 
-			WorkManager workManager = WorkManager.getInstance(context);
-			workManager.enqueueUniquePeriodicWork(WORK_TAG, ExistingPeriodicWorkPolicy.REPLACE, periodicWorkRequest);
-		}
+    /**
+     * State of the circuit breaker of the config backend.
+     */
+    public static RetryPolicy.State getCircuitState(Context context) {
+        return getRetryPolicy(context).getState(System.currentTimeMillis());
     }
 
     public ConfigWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
@@ -92,12 +202,42 @@ public class ConfigWorker extends Worker {
     @Override
     public Result doWork() {
         Logger.d(TAG, "started");
+        if (WakeupCoordinator.shouldSkipConfigLoad(getApplicationContext())) {
+            Logger.d(TAG, "config is fresh, skipped");
+            return Result.success();
+        }
+        RetryPolicy retryPolicy = getRetryPolicy(getApplicationContext());
+        if (!retryPolicy.allowRequest(System.currentTimeMillis())) {
+            Logger.d(TAG, "circuit open, skipped");
+            MetricsRegistry.counter(Metrics.CONFIG_FETCH_CIRCUIT_OPEN).increment();
+            return Result.success();
+        }
         DP3T.addWorkerStartedToHistory(getApplicationContext(), "config");
+        MetricsRegistry.counter(Metrics.CONFIG_FETCH).increment();
+        long startTime = SystemClock.elapsedRealtime();
         try {
             loadConfig();
-        } catch (IOException | ResponseError | SignatureException e) {
+            retryPolicy.onSuccess();
+            saveCircuit(getApplicationContext(), retryPolicy);
+        } catch (IOException | ResponseError | SignatureException | RuntimeException e) {
+            // Unexpected errors, e.g. in parsing, are failures too, or a half-open circuit would keep its trial
             Logger.e(TAG, "failed", e);
-            return Result.retry();
+            MetricsRegistry.counter(Metrics.CONFIG_FETCH_ERROR).increment();
+
+            // Retries are scheduled here rather than with WorkManager's backoff, which has no jitter
+            int attempt = getInputData().getInt(KEY_ATTEMPT, 0);
+            RetryPolicy.Decision decision = retryPolicy.onFailure(attempt, e, System.currentTimeMillis());
+            saveCircuit(getApplicationContext(), retryPolicy);
+            if (decision.shouldRetry()) {
+                Logger.d(TAG, "retrying in " + decision.getDelayMillis() + " ms");
+                scheduleRetry(getApplicationContext(), attempt + 1, decision.getDelayMillis());
+                // Succeeds so the retry chained after this one is not failed with it
+                return Result.success();
+            }
+            Logger.d(TAG, "giving up until the next periodic run");
+            return Result.failure();
+        } finally {
+            MetricsRegistry.histogram(Metrics.CONFIG_FETCH_LATENCY).record(SystemClock.elapsedRealtime() - startTime);
         }
 
         Logger.d(TAG, "finished with success");
@@ -108,13 +248,24 @@ public class ConfigWorker extends Worker {
         Context context = getApplicationContext();
 
         ConfigRepository configRepository = new ConfigRepository(context);
-        ConfigResponseModel config = configRepository.getConfig();
-
-        if (this.shouldBroadcastUpdateNotification(config.getVersion())) {
-            createUpdateNotification(context);
-        } else {
-            cancelUpdateNotification(context);
+        ConfigResult result = configRepository.getConfig();
+        SecureStorage secureStorage = SecureStorage.getInstance(context);
+        if (!result.isModified()) {
+            // Nothing changed since the last sync, matching parameters and InfoBox are up to date
+            Logger.d(TAG, "config not modified");
+            MetricsRegistry.counter(Metrics.CONFIG_FETCH_NOT_MODIFIED).increment();
+            secureStorage.edit(batch -> configRepository.recordSuccess(batch, result));
+            // The announced version is unchanged but the installed one may not be
+            String versionName = secureStorage.getConfigVersionName();
+            String versionBuild = secureStorage.getConfigVersionBuild();
+            if (versionName != null && versionBuild != null) {
+                updateNotification(context, new VersionModel(versionName, versionBuild));
+            }
+            return;
         }
+        ConfigResponseModel config = result.getConfig();
+
+        updateNotification(context, config.getVersion());
 
         // Update matching parameters
         DP3T.setMatchingParameters(context,
@@ -123,19 +274,34 @@ public class ConfigWorker extends Worker {
                 config.getParameters().getTriggerThreshold());
 
         // Check InfoBox
-        SecureStorage secureStorage = SecureStorage.getInstance(context);
         InfoBoxModel info = config.getInfoBox(context.getString(R.string.language_key));
-        if (info != null && (info.getId() == null || !info.getId().equals(secureStorage.getInfoboxId()))) {
-            // Only update the InfoBox if it has a new ID.
-            secureStorage.setInfoboxTitle(info.getTitle());
-            secureStorage.setInfoboxText(info.getText());
-            secureStorage.setInfoboxLink(info.getUrl());
-            secureStorage.setInfoboxId(info.getId());
-
+        // Only update the InfoBox if it has a new ID.
+        boolean newInfoBox = info != null && (info.getId() == null || !info.getId().equals(secureStorage.getInfoboxId()));
+
+        // Commit the sync and the InfoBox in a single write
+        secureStorage.edit(batch -> {
+            configRepository.recordSuccess(batch, result);
+            if (newInfoBox) {
+                batch.setInfoboxTitle(info.getTitle())
+                        .setInfoboxText(info.getText())
+                        .setInfoboxLink(info.getUrl())
+                        .setInfoboxId(info.getId());
+            }
+        });
+
+        if (newInfoBox) {
             createInfoBoxNotification(context);
         }
     }
 
+    private void updateNotification(Context context, VersionModel version) {
+        if (this.shouldBroadcastUpdateNotification(version)) {
+            createUpdateNotification(context);
+        } else {
+            cancelUpdateNotification(context);
+        }
+    }
+
     private void createUpdateNotification(Context context) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationUtil.createNotificationChannel(context);
@@ -162,6 +328,7 @@ public class ConfigWorker extends Worker {
         NotificationManager notificationManager =
                 (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         notificationManager.notify(NotificationUtil.NOTIFICATION_ID_UPDATE, notification);
+        Metrics.notificationShown("update");
     }
 
     private void createInfoBoxNotification(Context context) {
@@ -198,6 +365,7 @@ public class ConfigWorker extends Worker {
         NotificationManager notificationManager =
                 (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         notificationManager.notify(NotificationUtil.NOTIFICATION_ID_INFOBOX, notification);
+        Metrics.notificationShown("infobox");
     }
 
     private void cancelUpdateNotification(Context context) {
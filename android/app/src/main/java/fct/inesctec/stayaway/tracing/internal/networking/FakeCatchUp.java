@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Progress of one {@link FakeWorker} run through the fake requests planned up to its start.
+ *
+ * Requests planned more than {@code maxDelayMillis} ago are dropped up front. The remaining ones
+ * are sent while the run is within its time budget, what is left is rescheduled.
+ */
+class FakeCatchUp {
+
+    private final FakeWorker.Clock clock;
+    private final long now;
+    private final long budgetEnd;
+    private final long storedTDummy;
+
+    private long t_dummy;
+    private int dropped = 0;
+    private int sent = 0;
+
+    FakeCatchUp(@NonNull FakeWorker.Clock clock, long t_dummy, long maxDelayMillis, long budgetMillis) {
+        this.clock = clock;
+        this.now = clock.currentTimeMillis();
+        this.budgetEnd = now + budgetMillis;
+        this.storedTDummy = t_dummy;
+
+        if (t_dummy < 0) {
+            //if t_dummy < 0 because of some weird state, we reset it
+            t_dummy = now + clock.syncInterval();
+        }
+        while (t_dummy < now - maxDelayMillis) {
+            t_dummy += clock.syncInterval();
+            dropped++;
+        }
+        this.t_dummy = t_dummy;
+    }
+
+    /**
+     * Whether a request planned up to the start of the run is still to be sent.
+     */
+    boolean hasPending() {
+        return t_dummy < now;
+    }
+
+    /**
+     * Whether there is time left to send another request in this run.
+     */
+    boolean hasBudget() {
+        return clock.currentTimeMillis() < budgetEnd;
+    }
+
+    void onRequestSent() {
+        t_dummy += clock.syncInterval();
+        sent++;
+    }
+
+    /**
+     * Whether t_dummy moved away from the stored value, by dropping or sending requests or by a reset.
+     */
+    boolean isTDummyChanged() {
+        return t_dummy != storedTDummy;
+    }
+
+    long getTDummy() {
+        return t_dummy;
+    }
+
+    int getDropped() {
+        return dropped;
+    }
+
+    int getSent() {
+        return sent;
+    }
+}
@@ -21,8 +21,12 @@
 package fct.inesctec.stayaway.tracing.internal.networking;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
+import androidx.concurrent.futures.CallbackToFutureAdapter;
 import androidx.work.Constraints;
 import androidx.work.Data;
 import androidx.work.ExistingWorkPolicy;
@@ -30,26 +34,37 @@ import androidx.work.ListenableWorker;
 import androidx.work.NetworkType;
 import androidx.work.OneTimeWorkRequest;
 import androidx.work.WorkManager;
-import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 import org.dpppt.android.sdk.DP3T;
+import org.dpppt.android.sdk.backend.ResponseCallback;
 import org.dpppt.android.sdk.internal.logger.Logger;
 import org.dpppt.android.sdk.models.ExposeeAuthMethodAuthorization;
 
-import java.io.IOException;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import fct.inesctec.stayaway.BuildConfig;
-import fct.inesctec.stayaway.tracing.internal.networking.errors.ResponseError;
+import fct.inesctec.stayaway.tracing.internal.metrics.Metrics;
+import fct.inesctec.stayaway.tracing.internal.metrics.MetricsRegistry;
 import fct.inesctec.stayaway.tracing.internal.networking.models.AuthenticationCodeRequestModel;
 import fct.inesctec.stayaway.tracing.internal.networking.models.AuthenticationCodeResponseModel;
 import fct.inesctec.stayaway.tracing.internal.storage.SecureStorage;
+import fct.inesctec.stayaway.tracing.internal.util.BackgroundExecutor;
 import fct.inesctec.stayaway.tracing.internal.util.ExponentialDistribution;
+import retrofit2.Call;
 
-public class FakeWorker extends Worker {
+/**
+ * Sends fake infected requests at random intervals.
+ *
+ * The work never blocks a WorkManager thread: the access token and the fake upload are chained as
+ * futures, each stage with its own deadline, and everything in flight is cancelled in {@link #onStopped()}.
+ */
+public class FakeWorker extends ListenableWorker {
 
 	private static final String TAG = "FakeWorker";
 	private static final String WORK_TAG = "fct.inesctec.stayaway.FakeWorker";
@@ -60,8 +75,18 @@ public class FakeWorker extends Worker {
 	private static final long MAX_DELAY_HOURS = 48;
 	private static final float SAMPLING_RATE = BuildConfig.IS_RELEASE.equals("TRUE") ? 0.2f : 1.0f;
 
+	private static final long ACCESS_TOKEN_TIMEOUT_MILLIS = 60 * 1000L;
+	private static final long FAKE_UPLOAD_TIMEOUT_MILLIS = 2 * 60 * 1000L;
+	// Leaves room for the last request within WorkManager's 10 minute execution window
+	private static final long CATCH_UP_BUDGET_MILLIS = 5 * 60 * 1000L;
+
+	private static final Executor DIRECT_EXECUTOR = Runnable::run;
+	private static final Handler deadlineHandler = new Handler(Looper.getMainLooper());
+
 	public static Clock clock = new ClockImpl();
 
+	private volatile ListenableFuture<Void> currentRequest;
+
 	public FakeWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
 		super(context, workerParams);
 	}
@@ -97,64 +122,166 @@ public class FakeWorker extends Worker {
 
 	@NonNull
 	@Override
-	public ListenableWorker.Result doWork() {
-		long now = clock.currentTimeMillis();
-		SecureStorage secureStorage = SecureStorage.getInstance(getApplicationContext());
- 		long t_dummy = secureStorage.getTDummy();
- 		if (t_dummy < 0) {
- 			//if t_dummy < 0 because of some weird state, we reset it
- 			t_dummy = now + clock.syncInterval();
- 		}
- 		//to make sure we can still write the EncryptedSharedPreferences, we always write the value back
- 		secureStorage.setTDummy(t_dummy);
-
-		while (t_dummy < now) {
-			Logger.d(TAG, "start");
-			// only do request if it was planned to do in the last 48h
-			if (t_dummy >= now - FACTOR_HOUR_MILLIS * MAX_DELAY_HOURS) {
-				DP3T.addWorkerStartedToHistory(getApplicationContext(), "fake");
-				boolean success = executeFakeRequest(getApplicationContext());
-				if (success) {
-					Logger.d(TAG, "finished with success");
-				} else {
-					Logger.e(TAG, "failed");
-					return Result.retry();
+	public ListenableFuture<Result> startWork() {
+		return CallbackToFutureAdapter.getFuture(completer -> {
+			BackgroundExecutor.execute(() -> {
+				try {
+					start(completer);
+				} catch (RuntimeException e) {
+					completer.setException(e);
 				}
-			} else {
-				Logger.d(TAG, "outdated request is dropped.");
+			});
+			return TAG;
+		});
+	}
+
+	private void start(CallbackToFutureAdapter.Completer<Result> completer) {
+		SecureStorage secureStorage = SecureStorage.getInstance(getApplicationContext());
+		FakeCatchUp catchUp = new FakeCatchUp(clock, secureStorage.getTDummy(),
+				FACTOR_HOUR_MILLIS * MAX_DELAY_HOURS, CATCH_UP_BUDGET_MILLIS);
+		if (catchUp.getDropped() > 0) {
+			Logger.d(TAG, catchUp.getDropped() + " outdated requests are dropped.");
+		}
+
+		catchUp(completer, catchUp);
+	}
+
+	@Override
+	public void onStopped() {
+		ListenableFuture<Void> request = currentRequest;
+		if (request != null) {
+			request.cancel(true);
+		}
+	}
+
+	/**
+	 * Send the requests planned up to the start of the run one after the other, then schedule the next one.
+	 *
+	 * Progress is only written once the run ends. If the time budget runs out first, the remaining
+	 * requests are left to a new run scheduled right away.
+	 */
+	private void catchUp(CallbackToFutureAdapter.Completer<Result> completer, FakeCatchUp catchUp) {
+		if (isStopped()) {
+			checkpoint(catchUp);
+			return;
+		}
+
+		if (!catchUp.hasPending() || !catchUp.hasBudget()) {
+			if (catchUp.hasPending()) {
+				Logger.d(TAG, "time budget exhausted after " + catchUp.getSent() + " requests, rescheduling the rest");
+			}
+			checkpoint(catchUp);
+			startFakeWorker(getApplicationContext(), ExistingWorkPolicy.APPEND, catchUp.getTDummy());
+			completer.set(Result.success());
+			return;
+		}
+
+		Logger.d(TAG, "start");
+		DP3T.addWorkerStartedToHistory(getApplicationContext(), "fake");
+		MetricsRegistry.counter(Metrics.FAKE_REQUEST).increment();
+		long startTime = SystemClock.elapsedRealtime();
+		ListenableFuture<Void> request = executeFakeRequest(getApplicationContext());
+		currentRequest = request;
+		if (isStopped()) {
+			// onStopped may have run before the request was set
+			request.cancel(true);
+		}
+		request.addListener(() -> {
+			MetricsRegistry.histogram(Metrics.FAKE_REQUEST_LATENCY).record(SystemClock.elapsedRealtime() - startTime);
+			try {
+				request.get();
+			} catch (ExecutionException | CancellationException | InterruptedException e) {
+				Logger.e(TAG, "failed", e);
+				MetricsRegistry.counter(Metrics.FAKE_REQUEST_ERROR).increment();
+				checkpoint(catchUp);
+				completer.set(Result.retry());
+				return;
 			}
-			t_dummy += clock.syncInterval();
-			secureStorage.setTDummy(t_dummy);
+			Logger.d(TAG, "finished with success");
+
+			catchUp.onRequestSent();
+			catchUp(completer, catchUp);
+		}, BackgroundExecutor::execute);
+	}
+
+	private void checkpoint(FakeCatchUp catchUp) {
+		if (catchUp.isTDummyChanged()) {
+			SecureStorage.getInstance(getApplicationContext()).setTDummy(catchUp.getTDummy());
 		}
+	}
+
+	private ListenableFuture<Void> executeFakeRequest(Context context) {
+		return CallbackToFutureAdapter.getFuture(completer -> {
+			ListenableFuture<String> accessToken = getAccessToken(context);
+			completer.addCancellationListener(() -> accessToken.cancel(true), DIRECT_EXECUTOR);
 
-		startFakeWorker(getApplicationContext(), ExistingWorkPolicy.APPEND, t_dummy);
-		return Result.success();
+			accessToken.addListener(() -> {
+				try {
+					ListenableFuture<Void> upload = sendFakeInfectedRequest(context, accessToken.get());
+					completer.addCancellationListener(() -> upload.cancel(true), DIRECT_EXECUTOR);
+					upload.addListener(() -> {
+						try {
+							completer.set(upload.get());
+						} catch (ExecutionException e) {
+							completer.setException(e.getCause());
+						} catch (CancellationException | InterruptedException e) {
+							completer.setCancelled();
+						}
+					}, DIRECT_EXECUTOR);
+				} catch (ExecutionException e) {
+					completer.setException(e.getCause());
+				} catch (CancellationException | InterruptedException e) {
+					completer.setCancelled();
+				}
+			}, DIRECT_EXECUTOR);
+
+			return "executeFakeRequest";
+		});
 	}
 
-    private boolean executeFakeRequest(Context context) {
-		try {
+	private ListenableFuture<String> getAccessToken(Context context) {
+		return withDeadline(CallbackToFutureAdapter.getFuture(completer -> {
 			AuthCodeRepository authCodeRepository = new AuthCodeRepository(context);
-			AuthenticationCodeResponseModel accessTokenResponse =
-					authCodeRepository.getAccessTokenSync(new AuthenticationCodeRequestModel(FAKE_AUTH_CODE, 1));
-			String accessToken = accessTokenResponse.getAccessToken();
+			Call<AuthenticationCodeResponseModel> call = authCodeRepository.getAccessToken(
+					new AuthenticationCodeRequestModel(FAKE_AUTH_CODE, 1),
+					new ResponseCallback<AuthenticationCodeResponseModel>() {
+						@Override
+						public void onSuccess(AuthenticationCodeResponseModel response) {
+							completer.set(response.getAccessToken());
+						}
 
-			CountDownLatch countdownLatch = new CountDownLatch(1);
-			AtomicBoolean error = new AtomicBoolean(false);
-			DP3T.sendFakeInfectedRequest(context, new ExposeeAuthMethodAuthorization(getAuthorizationHeader(accessToken)),
-					() -> {
-						countdownLatch.countDown();
-					},
-					() -> {
-						error.set(true);
-						countdownLatch.countDown();
+						@Override
+						public void onError(Throwable throwable) {
+							completer.setException(throwable);
+						}
 					});
-			countdownLatch.await();
-			if (error.get()) return false;
-			return true;
-		} catch (IOException | ResponseError | InterruptedException e) {
-			Logger.e(TAG, "fake request failed", e);
-			return false;
-		}
+			completer.addCancellationListener(call::cancel, DIRECT_EXECUTOR);
+			return "getAccessToken";
+		}), ACCESS_TOKEN_TIMEOUT_MILLIS, "access token");
+	}
+
+	private ListenableFuture<Void> sendFakeInfectedRequest(Context context, String accessToken) {
+		return withDeadline(CallbackToFutureAdapter.getFuture(completer -> {
+			// The SDK request cannot be cancelled, giving up on it only releases this worker
+			DP3T.sendFakeInfectedRequest(context, new ExposeeAuthMethodAuthorization(getAuthorizationHeader(accessToken)),
+					() -> completer.set(null),
+					() -> completer.setException(new IllegalStateException("fake infected request failed")));
+			return "sendFakeInfectedRequest";
+		}), FAKE_UPLOAD_TIMEOUT_MILLIS, "fake infected request");
+	}
+
+	/**
+	 * Cancel the stage if it is not complete after the given time.
+	 */
+	private static <T> ListenableFuture<T> withDeadline(ListenableFuture<T> future, long timeoutMillis, String stage) {
+		Runnable deadline = () -> {
+			if (future.cancel(true)) {
+				Logger.e(TAG, stage + " timed out after " + timeoutMillis + " ms");
+			}
+		};
+		deadlineHandler.postDelayed(deadline, timeoutMillis);
+		future.addListener(() -> deadlineHandler.removeCallbacks(deadline), DIRECT_EXECUTOR);
+		return future;
 	}
 
 	private String getAuthorizationHeader(String accessToken) {
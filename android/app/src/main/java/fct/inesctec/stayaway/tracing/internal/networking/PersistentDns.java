@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dns;
+
+/**
+ * DNS resolver whose cache survives process restarts.
+ *
+ * The app process is started for most background work, so every worker used to begin with a cold
+ * lookup. Answers are kept in a small file. A fresh answer is used as is. A stale one is used
+ * right away while a background lookup refreshes it, and also when that lookup fails. Only an
+ * expired or unknown host waits for a lookup.
+ *
+ * A cached address can stop working before its answer expires, e.g. after a backend moved. Failed
+ * addresses are tried last. Once connecting to every cached address of a host has failed, the next
+ * lookup waits for a fresh answer, and only falls back to the cached one if that lookup fails too.
+ * A single failed route, e.g. IPv6 on a network that only has IPv4, keeps the cached answer.
+ *
+ * The system resolver does not expose record TTLs, so answers are fresh for a fixed time.
+ */
+public class PersistentDns implements Dns {
+
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    static final long FRESH_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    static final long MAX_STALE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    private static final int FILE_VERSION = 1;
+    private static final int MAX_ENTRIES = 16;
+    private static final int MAX_ADDRESSES = 64;
+
+    private static class Entry {
+        final List<InetAddress> addresses;
+        final long resolvedAt;
+        // Only known to this process
+        final Set<InetAddress> failed = new HashSet<>();
+
+        Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    private final File file;
+    private final Dns delegate;
+    private final Executor executor;
+    private final Clock clock;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Set<String> refreshing = new HashSet<>();
+    private final Set<String> unreachable = new HashSet<>();
+    private boolean loaded = false;
+
+    public PersistentDns(@NonNull File file, @NonNull Dns delegate, @NonNull Executor executor, @NonNull Clock clock) {
+        this.file = file;
+        this.delegate = delegate;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    @NonNull
+    @Override
+    public List<InetAddress> lookup(@NonNull String hostname) throws UnknownHostException {
+        Entry entry;
+        List<InetAddress> addresses = null;
+        boolean revalidate = false;
+        boolean refresh = false;
+        synchronized (this) {
+            load();
+            entry = entries.get(hostname);
+            long age = entry != null ? clock.currentTimeMillis() - entry.resolvedAt : Long.MAX_VALUE;
+            if (age < 0 || age >= MAX_STALE_MILLIS) {
+                entry = null;
+            } else if (unreachable.remove(hostname)) {
+                revalidate = true;
+            } else if (age >= FRESH_MILLIS && refreshing.add(hostname)) {
+                refresh = true;
+            }
+            if (entry != null) {
+                addresses = failedLast(entry);
+            }
+        }
+
+        if (entry == null) {
+            return resolve(hostname);
+        }
+        if (revalidate) {
+            try {
+                return resolve(hostname);
+            } catch (UnknownHostException e) {
+                // Probably offline, the cached answer is as good as none
+                return addresses;
+            }
+        }
+        if (refresh) {
+            executor.execute(() -> {
+                try {
+                    resolve(hostname);
+                } catch (UnknownHostException e) {
+                    // Keep serving the stale answer until it expires
+                } finally {
+                    synchronized (this) {
+                        refreshing.remove(hostname);
+                    }
+                }
+            });
+        }
+        return addresses;
+    }
+
+    /**
+     * Report that connecting to an address of the host failed. Once every address of the cached
+     * answer has failed, the next lookup resolves the host again before using it.
+     */
+    public synchronized void onConnectFailed(@NonNull String hostname, @Nullable InetAddress address) {
+        Entry entry = entries.get(hostname);
+        if (entry == null || address == null || !entry.addresses.contains(address)) return;
+
+        entry.failed.add(address);
+        if (entry.failed.containsAll(entry.addresses)) {
+            unreachable.add(hostname);
+        }
+    }
+
+    private static List<InetAddress> failedLast(Entry entry) {
+        if (entry.failed.isEmpty()) return entry.addresses;
+
+        List<InetAddress> addresses = new ArrayList<>(entry.addresses.size());
+        List<InetAddress> failed = new ArrayList<>();
+        for (InetAddress address : entry.addresses) {
+            if (entry.failed.contains(address)) {
+                failed.add(address);
+            } else {
+                addresses.add(address);
+            }
+        }
+        addresses.addAll(failed);
+        return addresses;
+    }
+
+    private List<InetAddress> resolve(String hostname) throws UnknownHostException {
+        List<InetAddress> addresses = delegate.lookup(hostname);
+        synchronized (this) {
+            if (entries.size() >= MAX_ENTRIES && !entries.containsKey(hostname)) {
+                entries.clear();
+            }
+            entries.put(hostname, new Entry(new ArrayList<>(addresses), clock.currentTimeMillis()));
+            save();
+        }
+        return addresses;
+    }
+
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+        if (!file.exists()) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION) return;
+            int count = in.readInt();
+            if (count < 0 || count > MAX_ENTRIES) return;
+            for (int i = 0; i < count; i++) {
+                String hostname = in.readUTF();
+                long resolvedAt = in.readLong();
+                int addressCount = in.readInt();
+                if (addressCount < 0 || addressCount > MAX_ADDRESSES) throw new IOException("invalid count");
+                List<InetAddress> addresses = new ArrayList<>(addressCount);
+                for (int j = 0; j < addressCount; j++) {
+                    int length = in.readInt();
+                    if (length != 4 && length != 16) throw new IOException("invalid address");
+                    byte[] address = new byte[length];
+                    in.readFully(address);
+                    addresses.add(InetAddress.getByAddress(hostname, address));
+                }
+                entries.put(hostname, new Entry(addresses, resolvedAt));
+            }
+        } catch (IOException e) {
+            // Corrupt or truncated, start over
+            entries.clear();
+        }
+    }
+
+    private void save() {
+        // Written next to the cache and renamed, a crash never leaves a half-written file
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().resolvedAt);
+                out.writeInt(entry.getValue().addresses.size());
+                for (InetAddress address : entry.getValue().addresses) {
+                    out.writeInt(address.getAddress().length);
+                    out.write(address.getAddress());
+                }
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+}
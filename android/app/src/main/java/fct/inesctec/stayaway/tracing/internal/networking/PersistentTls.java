@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import org.conscrypt.Conscrypt;
+import org.conscrypt.FileClientSessionCache;
+import org.dpppt.android.sdk.internal.logger.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * TLS sockets whose sessions survive process restarts.
+ *
+ * Sessions and tickets are kept in a file cache in the app's private storage, installed on the
+ * client session context of an SSLContext, so the first request of a new process resumes the
+ * session instead of doing a full handshake. The platform offers no public way to persist its
+ * sessions, so the context comes from the bundled Conscrypt provider.
+ *
+ * The sockets are plain SSLSockets, OkHttp still applies its connection specs, negotiates HTTP/2
+ * with ALPN and handshakes itself. Certificates are checked against the system trust store, and
+ * the backend clients keep their {@code CertificatePinner}, which OkHttp applies to resumed
+ * sessions too.
+ */
+public class PersistentTls {
+
+    private static final String TAG = "PersistentTls";
+
+    private static final String SESSION_CACHE_DIR = "tls_sessions";
+
+    private final SSLSocketFactory socketFactory;
+    private final X509TrustManager trustManager;
+
+    private PersistentTls(SSLSocketFactory socketFactory, X509TrustManager trustManager) {
+        this.socketFactory = socketFactory;
+        this.trustManager = trustManager;
+    }
+
+    /**
+     * Create the sockets, null to fall back to OkHttp's defaults if the platform trust manager or the cache is unavailable.
+     */
+    @Nullable
+    public static PersistentTls create(@NonNull Context context) {
+        try {
+            TrustManagerFactory trustManagerFactory =
+                    TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init((KeyStore) null);
+            for (TrustManager trustManager : trustManagerFactory.getTrustManagers()) {
+                if (trustManager instanceof X509TrustManager) {
+                    File sessionDir = new File(context.getCacheDir(), SESSION_CACHE_DIR);
+                    return create(sessionDir, (X509TrustManager) trustManager);
+                }
+            }
+        } catch (GeneralSecurityException | IOException e) {
+            Logger.e(TAG, "no persistent TLS sessions", e);
+        }
+        return null;
+    }
+
+    /**
+     * Create the sockets with the given trust manager, which verifies the handshakes and cleans the chains for pinning.
+     */
+    @VisibleForTesting
+    @NonNull
+    public static PersistentTls create(@NonNull File sessionDir, @NonNull X509TrustManager trustManager)
+            throws GeneralSecurityException, IOException {
+        SSLContext sslContext = SSLContext.getInstance("TLS", Conscrypt.newProvider());
+        sslContext.init(null, new TrustManager[]{trustManager}, null);
+        // Used by every socket factory of the context
+        Conscrypt.setClientSessionCache(sslContext, FileClientSessionCache.usingDirectory(sessionDir));
+        return new PersistentTls(sslContext.getSocketFactory(), trustManager);
+    }
+
+    public SSLSocketFactory getSocketFactory() {
+        return socketFactory;
+    }
+
+    public X509TrustManager getTrustManager() {
+        return trustManager;
+    }
+}
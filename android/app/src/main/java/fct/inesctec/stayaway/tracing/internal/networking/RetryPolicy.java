@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.security.SecureRandom;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import fct.inesctec.stayaway.tracing.internal.networking.errors.ResponseError;
+
+/**
+ * Decides when a failed backend request is retried.
+ *
+ * Delays use exponential backoff with full jitter, so clients that failed together do not retry
+ * together. A 429 or 503 with a Retry-After header is retried no earlier than the server asked.
+ * Client errors are not retried and attempts are capped. After several failures in a row the
+ * circuit opens and requests are held back until it half-opens for a single trial request.
+ *
+ * The failure count and the end of the open period can be saved and restored, so the circuit
+ * survives process restarts. A trial in flight is only known to the process sending it.
+ */
+public class RetryPolicy {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Outcome of a failure: retry after the delay, or give up.
+     */
+    public static class Decision {
+        private final boolean retry;
+        private final long delayMillis;
+
+        private Decision(boolean retry, long delayMillis) {
+            this.retry = retry;
+            this.delayMillis = delayMillis;
+        }
+
+        public boolean shouldRetry() {
+            return retry;
+        }
+
+        public long getDelayMillis() {
+            return delayMillis;
+        }
+    }
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_UNAVAILABLE = 503;
+    private static final int HTTP_REQUEST_TIMEOUT = 408;
+
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final int maxAttempts;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Random random;
+
+    private int consecutiveFailures = 0;
+    private long openUntil = 0;
+    private boolean trialInFlight = false;
+
+    public RetryPolicy(long baseDelayMillis, long maxDelayMillis, int maxAttempts,
+                       int failureThreshold, long openMillis, @NonNull Random random) {
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxAttempts = maxAttempts;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.random = random;
+    }
+
+    /**
+     * Policy of the config backend: 30 s base, 6 h cap, 5 attempts, open for 12 h after 5 failures in a row.
+     */
+    public static RetryPolicy forConfig() {
+        return new RetryPolicy(TimeUnit.SECONDS.toMillis(30), TimeUnit.HOURS.toMillis(6), 5,
+                5, TimeUnit.HOURS.toMillis(12), new SecureRandom());
+    }
+
+    /**
+     * Restore the state saved from {@link #getConsecutiveFailures()} and {@link #getOpenUntil()}.
+     */
+    public synchronized void restore(int consecutiveFailures, long openUntil) {
+        this.consecutiveFailures = Math.max(0, consecutiveFailures);
+        this.openUntil = openUntil;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized long getOpenUntil() {
+        return openUntil;
+    }
+
+    public synchronized State getState(long now) {
+        if (consecutiveFailures < failureThreshold) return State.CLOSED;
+        return now < openUntil ? State.OPEN : State.HALF_OPEN;
+    }
+
+    /**
+     * Whether a request may be sent now. While half-open a single trial is let through, until its
+     * outcome is recorded with {@link #onSuccess()} or {@link #onFailure(int, Throwable, long)}.
+     */
+    public synchronized boolean allowRequest(long now) {
+        switch (getState(now)) {
+            case OPEN:
+                return false;
+            case HALF_OPEN:
+                if (trialInFlight) return false;
+                trialInFlight = true;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Time until the circuit half-opens, 0 if it is not open.
+     */
+    public synchronized long getRemainingOpenMillis(long now) {
+        return getState(now) == State.OPEN ? openUntil - now : 0;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        openUntil = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * Record a failure of the given attempt (0 for the first request) and decide on a retry.
+     */
+    public synchronized Decision onFailure(int attempt, @NonNull Throwable error, long now) {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (consecutiveFailures >= failureThreshold) {
+            openUntil = now + openMillis;
+        }
+
+        int statusCode = error instanceof ResponseError ? ((ResponseError) error).getStatusCode() : -1;
+        if (!isRetryable(statusCode) || attempt + 1 >= maxAttempts) {
+            return new Decision(false, 0);
+        }
+
+        long delay;
+        Long retryAfter = null;
+        if (statusCode == HTTP_TOO_MANY_REQUESTS || statusCode == HTTP_UNAVAILABLE) {
+            retryAfter = parseRetryAfter(((ResponseError) error).getHeader("Retry-After"), now);
+        }
+        if (retryAfter != null) {
+            // Never before the server asked, spread over one base delay after that
+            delay = Math.min(retryAfter, maxDelayMillis) + randomUpTo(baseDelayMillis);
+        } else {
+            long cap = maxDelayMillis;
+            if (attempt < 62 && baseDelayMillis <= maxDelayMillis >> attempt) {
+                cap = baseDelayMillis << attempt;
+            }
+            delay = randomUpTo(cap);
+        }
+
+        // An open circuit holds back the retry too
+        delay = Math.max(delay, getRemainingOpenMillis(now));
+        return new Decision(true, delay);
+    }
+
+    private static boolean isRetryable(int statusCode) {
+        if (statusCode < 0) return true; // network, parsing or signature error
+        if (statusCode == HTTP_TOO_MANY_REQUESTS || statusCode == HTTP_REQUEST_TIMEOUT) return true;
+        return statusCode >= 500;
+    }
+
+    private long randomUpTo(long bound) {
+        return bound <= 0 ? 0 : (long) (random.nextDouble() * bound);
+    }
+
+    /**
+     * Parse a Retry-After header, in seconds or as an HTTP date.
+     *
+     * @return The delay in milliseconds, null if absent or invalid
+     */
+    @Nullable
+    static Long parseRetryAfter(@Nullable String value, long now) {
+        if (value == null) return null;
+        value = value.trim();
+
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // Not in seconds, try a date
+        }
+
+        SimpleDateFormat httpDate = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        httpDate.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, httpDate.parse(value).getTime() - now);
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+}
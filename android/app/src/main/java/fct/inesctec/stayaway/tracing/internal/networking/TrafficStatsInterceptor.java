@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import android.net.TrafficStats;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Tags the sockets opened for a backend, so Android's data usage accounts for each backend separately.
+ *
+ * Sockets are tagged with the tag of the thread that opens them, which is the thread running the chain.
+ */
+public class TrafficStatsInterceptor implements Interceptor {
+
+    public static final int TAG_AUTH_CODE = 0x5A01;
+    public static final int TAG_CONFIG = 0x5A02;
+
+    private final int tag;
+
+    public TrafficStatsInterceptor(int tag) {
+        this.tag = tag;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        int previousTag = TrafficStats.getThreadStatsTag();
+        TrafficStats.setThreadStatsTag(tag);
+        try {
+            return chain.proceed(chain.request());
+        } finally {
+            TrafficStats.setThreadStatsTag(previousTag);
+        }
+    }
+}
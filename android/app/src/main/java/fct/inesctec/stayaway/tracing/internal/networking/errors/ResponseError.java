@@ -36,4 +36,8 @@ public class ResponseError extends Throwable {
 		return response.code();
 	}
 
+	public String getHeader(@NonNull String name) {
+		return response.header(name);
+	}
+
 }
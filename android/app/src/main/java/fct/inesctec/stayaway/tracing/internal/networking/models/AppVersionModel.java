@@ -10,6 +10,10 @@
 
 package fct.inesctec.stayaway.tracing.internal.networking.models;
 
+import androidx.annotation.NonNull;
+
+import fct.inesctec.stayaway.tracing.internal.networking.proto.AppVersions;
+
 public class AppVersionModel {
     private VersionModel ios;
     private VersionModel android;
@@ -19,6 +23,12 @@ public class AppVersionModel {
         this.android = android;
     }
 
+    public static AppVersionModel fromProto(@NonNull AppVersions versions) {
+        return new AppVersionModel(
+                versions.hasIos() ? VersionModel.fromProto(versions.getIos()) : null,
+                versions.hasAndroid() ? VersionModel.fromProto(versions.getAndroid()) : null);
+    }
+
     public VersionModel getIOSVersion() {
         return ios;
     }
@@ -10,6 +10,13 @@
 
 package fct.inesctec.stayaway.tracing.internal.networking.models;
 
+import androidx.annotation.NonNull;
+
+import java.util.Map;
+
+import fct.inesctec.stayaway.tracing.internal.networking.proto.Config;
+import fct.inesctec.stayaway.tracing.internal.networking.proto.InfoBox;
+
 public class ConfigResponseModel {
     private AppVersionModel versions;
     private ParametersModel parameters;
@@ -21,6 +28,24 @@ public class ConfigResponseModel {
         this.infoBox = infoBox;
     }
 
+    public static ConfigResponseModel fromProto(@NonNull Config config) {
+        InfoBoxModelCollection infoBox = null;
+        if (config.getInfoBoxCount() > 0) {
+            infoBox = new InfoBoxModelCollection();
+            for (Map.Entry<String, InfoBox> entry : config.getInfoBoxMap().entrySet()) {
+                infoBox.put(entry.getKey(), InfoBoxModel.fromProto(entry.getValue()));
+            }
+        }
+        return new ConfigResponseModel(
+                config.hasVersions() ? AppVersionModel.fromProto(config.getVersions()) : null,
+                config.hasParameters() ? ParametersModel.fromProto(config.getParameters()) : null,
+                infoBox);
+    }
+
+    public AppVersionModel getVersions() {
+        return versions;
+    }
+
     public VersionModel getVersion() {
         return versions.getAndroidVersion();
     }
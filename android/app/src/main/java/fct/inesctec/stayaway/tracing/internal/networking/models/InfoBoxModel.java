@@ -10,6 +10,10 @@
 
 package fct.inesctec.stayaway.tracing.internal.networking.models;
 
+import androidx.annotation.NonNull;
+
+import fct.inesctec.stayaway.tracing.internal.networking.proto.InfoBox;
+
 public class InfoBoxModel {
     private String id;
     private String title;
@@ -23,6 +27,16 @@ public class InfoBoxModel {
         this.url = url;
     }
 
+    public static InfoBoxModel fromProto(@NonNull InfoBox infoBox) {
+        // Protobuf has no null strings, missing fields are empty
+        return new InfoBoxModel(emptyToNull(infoBox.getId()), infoBox.getTitle(), infoBox.getText(),
+                emptyToNull(infoBox.getUrl()));
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
     public String getId() { return id; }
 
     public String getTitle() {
@@ -20,6 +20,10 @@
 
 package fct.inesctec.stayaway.tracing.internal.networking.models;
 
+import androidx.annotation.NonNull;
+
+import fct.inesctec.stayaway.tracing.internal.networking.proto.Parameters;
+
 public class ParametersModel {
 
     private int lowerThreshold;
@@ -28,6 +32,19 @@ public class ParametersModel {
     private float factorHigh;
     private int triggerThreshold;
 
+    public ParametersModel(int lowerThreshold, int higherThreshold, float factorLow, float factorHigh, int triggerThreshold) {
+        this.lowerThreshold = lowerThreshold;
+        this.higherThreshold = higherThreshold;
+        this.factorLow = factorLow;
+        this.factorHigh = factorHigh;
+        this.triggerThreshold = triggerThreshold;
+    }
+
+    public static ParametersModel fromProto(@NonNull Parameters parameters) {
+        return new ParametersModel(parameters.getLowerThreshold(), parameters.getHigherThreshold(),
+                parameters.getFactorLow(), parameters.getFactorHigh(), parameters.getTriggerThreshold());
+    }
+
     public int getLowerThreshold() {
         return lowerThreshold;
     }
@@ -10,6 +10,10 @@
 
 package fct.inesctec.stayaway.tracing.internal.networking.models;
 
+import androidx.annotation.NonNull;
+
+import fct.inesctec.stayaway.tracing.internal.networking.proto.Version;
+
 public class VersionModel {
     private String name;
     private String build;
@@ -19,6 +23,10 @@ public class VersionModel {
         this.build = build;
     }
 
+    public static VersionModel fromProto(@NonNull Version version) {
+        return new VersionModel(version.getName(), version.getBuild());
+    }
+
     public String getName() {
         return name;
     }
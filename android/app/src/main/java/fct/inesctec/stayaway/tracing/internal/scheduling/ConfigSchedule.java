@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.scheduling;
+
+import androidx.annotation.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import fct.inesctec.stayaway.tracing.internal.networking.ConfigWorker;
+
+/**
+ * Spreads the config loads of all installs evenly over the interval.
+ *
+ * Each install gets a fixed phase derived from its install id, and its periodic load runs in a
+ * flex window starting at that phase. Rescheduling, e.g. after an app update, keeps the phase, so
+ * the fleet does not fall into step. The interval follows the max-age of the config response.
+ */
+public class ConfigSchedule {
+
+    public static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.DAYS.toMillis(ConfigWorker.REPEAT_INTERVAL_CONFIG_DAYS);
+    // Shorter max-ages are edge caching hints of the CDN, not a reload schedule
+    public static final long MIN_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(6);
+    public static final long MAX_INTERVAL_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    // Loads run in the last quarter of each interval, so the OS can batch them with other work
+    private static final int FLEX_FRACTION = 4;
+    // WorkManager's PeriodicWorkRequest.MIN_PERIODIC_FLEX_MILLIS
+    private static final long MIN_FLEX_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Interval of the periodic load for the max-age of the last config response.
+     *
+     * @param maxAgeMillis The max-age, negative if the response had none
+     */
+    public static long getIntervalMillis(long maxAgeMillis) {
+        if (maxAgeMillis < MIN_INTERVAL_MILLIS) return DEFAULT_INTERVAL_MILLIS;
+        return Math.min(maxAgeMillis, MAX_INTERVAL_MILLIS);
+    }
+
+    public static long getFlexMillis(long intervalMillis) {
+        return Math.max(intervalMillis / FLEX_FRACTION, MIN_FLEX_MILLIS);
+    }
+
+    /**
+     * Phase of this install within a period, the same for every call with the same install id.
+     */
+    public static long getPhaseMillis(@NonNull String installId, long periodMillis) {
+        long hash;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(installId.getBytes(StandardCharsets.UTF_8));
+            hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+        } catch (NoSuchAlgorithmException e) {
+            hash = installId.hashCode();
+        }
+        return mod(hash, periodMillis);
+    }
+
+    /**
+     * Whether {@code now} is in the flex window of this install, or at most {@code leadMillis} before it opens.
+     */
+    public static boolean isNearWindow(long now, long phaseMillis, long intervalMillis, long flexMillis, long leadMillis) {
+        long sinceWindowStart = mod(now - phaseMillis, intervalMillis);
+        return sinceWindowStart < flexMillis || sinceWindowStart >= intervalMillis - leadMillis;
+    }
+
+    /**
+     * Initial delay of a periodic request enqueued now, so its first flex window starts at the phase.
+     *
+     * WorkManager opens the first flex window at enqueue time + initial delay + interval - flex.
+     */
+    public static long getInitialDelayMillis(long now, long phaseMillis, long intervalMillis, long flexMillis) {
+        return mod(phaseMillis + flexMillis - intervalMillis - now, intervalMillis);
+    }
+
+    private static long mod(long value, long modulus) {
+        long result = value % modulus;
+        return result < 0 ? result + modulus : result;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.scheduling;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import org.dpppt.android.sdk.TracingStatus;
+import org.dpppt.android.sdk.internal.logger.Logger;
+
+import java.util.concurrent.TimeUnit;
+
+import fct.inesctec.stayaway.tracing.internal.metrics.Metrics;
+import fct.inesctec.stayaway.tracing.internal.metrics.MetricsRegistry;
+import fct.inesctec.stayaway.tracing.internal.networking.ConfigWorker;
+import fct.inesctec.stayaway.tracing.internal.storage.SecureStorage;
+
+/**
+ * Groups background network work into the wake-ups that already happen.
+ *
+ * When a DP3T sync has just finished the radio is still up, so a config load is done right away
+ * if the flex window of this install is open or opens within {@link #CONFIG_TOLERANCE_MILLIS}.
+ * The periodic {@link ConfigWorker} run then finds a fresh config and skips the network. Loads
+ * stay at the phase of the install, see {@link ConfigSchedule}. The fake requests keep their own
+ * random schedule, grouping them with real traffic would make them distinguishable.
+ */
+public class WakeupCoordinator {
+
+    private static final String TAG = "WakeupCoordinator";
+    private static final String WORK_TAG_PIGGYBACK_CONFIG = "fct.inesctec.stayaway.ConfigWorker.piggyback";
+
+    private static final long CONFIG_TOLERANCE_MILLIS = TimeUnit.HOURS.toMillis(6);
+    // How long after a sync the radio is assumed to be still up
+    private static final long RECENT_SYNC_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static long lastPiggybackedSyncDate = 0;
+
+    /**
+     * Called on every SDK update, loads the config along with a sync that just finished if it is due soon.
+     */
+    public static synchronized void onUpdate(@NonNull Context context, @NonNull TracingStatus status) {
+        long now = System.currentTimeMillis();
+        long lastSyncDate = status.getLastSyncDate();
+        if (lastSyncDate == lastPiggybackedSyncDate || now - lastSyncDate > RECENT_SYNC_MILLIS) return;
+
+        SecureStorage secureStorage = SecureStorage.getInstance(context);
+        long intervalMillis = ConfigSchedule.getIntervalMillis(secureStorage.getConfigMaxAge());
+        if (!isConfigDue(secureStorage.getLastConfigLoadSuccess(), now, intervalMillis) ||
+                !isNearWindow(secureStorage.getInstallId(), now, intervalMillis)) {
+            return;
+        }
+
+        Logger.d(TAG, "loading config along with the sync");
+        MetricsRegistry.counter(Metrics.CONFIG_FETCH_PIGGYBACKED).increment();
+        lastPiggybackedSyncDate = lastSyncDate;
+        ConfigWorker.loadConfigOnce(context, WORK_TAG_PIGGYBACK_CONFIG);
+    }
+
+    /**
+     * Whether a config load can be skipped because the config is still fresh.
+     */
+    public static synchronized boolean shouldSkipConfigLoad(@NonNull Context context) {
+        SecureStorage secureStorage = SecureStorage.getInstance(context);
+        if (!ConfigWorker.isConfigForCurrentBuild(secureStorage) ||
+                isConfigDue(secureStorage, System.currentTimeMillis())) {
+            return false;
+        }
+
+        MetricsRegistry.counter(Metrics.CONFIG_FETCH_SKIPPED).increment();
+        return true;
+    }
+
+    private static boolean isConfigDue(SecureStorage secureStorage, long now) {
+        long intervalMillis = ConfigSchedule.getIntervalMillis(secureStorage.getConfigMaxAge());
+        return isConfigDue(secureStorage.getLastConfigLoadSuccess(), now, intervalMillis);
+    }
+
+    private static boolean isNearWindow(String installId, long now, long intervalMillis) {
+        long toleranceMillis = Math.min(CONFIG_TOLERANCE_MILLIS, intervalMillis / 4);
+        return ConfigSchedule.isNearWindow(now, ConfigSchedule.getPhaseMillis(installId, intervalMillis), intervalMillis,
+                ConfigSchedule.getFlexMillis(intervalMillis), toleranceMillis);
+    }
+
+    /**
+     * Whether the config is due within the tolerance.
+     */
+    @VisibleForTesting
+    static boolean isConfigDue(long lastConfigLoadSuccess, long now, long intervalMillis) {
+        long toleranceMillis = Math.min(CONFIG_TOLERANCE_MILLIS, intervalMillis / 4);
+        return now - lastConfigLoadSuccess >= intervalMillis - toleranceMillis;
+    }
+}
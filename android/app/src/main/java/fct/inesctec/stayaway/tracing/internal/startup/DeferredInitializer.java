@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.startup;
+
+import android.app.ActivityManager;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import fct.inesctec.stayaway.tracing.internal.util.BackgroundExecutor;
+
+/**
+ * Runs the initialization that is not needed to draw the first frame once the start is over.
+ *
+ * When the process is launched for the UI, the work waits until the main thread goes idle,
+ * which is after the first frame. When it is launched for a worker or a broadcast there is no
+ * frame to wait for, so it runs right away.
+ */
+public class DeferredInitializer {
+
+    // In case the main thread never goes idle
+    private static final long MAX_DELAY_MILLIS = 5000;
+
+    private static Boolean launchedForUi;
+
+    /**
+     * Whether the process was started to show an activity, as opposed to run a job or a broadcast.
+     */
+    public static synchronized boolean isLaunchedForUi() {
+        if (launchedForUi == null) {
+            ActivityManager.RunningAppProcessInfo processInfo = new ActivityManager.RunningAppProcessInfo();
+            ActivityManager.getMyMemoryState(processInfo);
+            launchedForUi = processInfo.importance <= ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND;
+        }
+        return launchedForUi;
+    }
+
+    /**
+     * Run the task on the main thread once the start is over.
+     */
+    public static void afterStartup(@NonNull Runnable task) {
+        if (!isLaunchedForUi()) {
+            task.run();
+            return;
+        }
+
+        AtomicBoolean done = new AtomicBoolean(false);
+        Runnable runOnce = () -> {
+            if (done.compareAndSet(false, true)) {
+                task.run();
+            }
+        };
+
+        Looper.getMainLooper().getQueue().addIdleHandler(() -> {
+            runOnce.run();
+            return false;
+        });
+        new Handler(Looper.getMainLooper()).postDelayed(runOnce, MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * Run the task on a background thread once the start is over.
+     */
+    public static void runDeferred(@NonNull Runnable task) {
+        afterStartup(() -> BackgroundExecutor.execute(task));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.startup;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import fct.inesctec.stayaway.tracing.internal.util.BackgroundExecutor;
+
+/**
+ * Records the phases of a cold start, both as {@link Trace} sections for systrace and as
+ * monotonic timings kept for the last {@link #MAX_TRACES} starts.
+ *
+ * Phases are nested by calling {@link #begin(String)} and {@link #end()} in pairs on the main
+ * thread, {@link #finish(Context)} stores the trace once the start is over.
+ *
+ * @example
+ * {
+ *     timestamp : long (wall clock time of the start)
+ *     launchedForUi : boolean (if so the trace ends when the main thread goes idle, after the first frame)
+ *     processStartMs : double (from process start to the first phase, -1 before Android 7)
+ *     totalMs : double
+ *     phases : List<{ name : String, depth : int, startMs : double, durationMs : double }>
+ * }
+ */
+public class StartupTracer {
+
+    private static final String TAG = "StartupTracer";
+
+    private static final String PREFERENCES = "StartupTraces";
+    private static final String KEY_TRACES = "traces";
+    private static final int MAX_TRACES = 10;
+
+    private static final long NANOS_PER_MILLI = 1000 * 1000L;
+
+    private static long startNanos = -1;
+    private static final Deque<Phase> openPhases = new ArrayDeque<>();
+    private static final JSONArray phases = new JSONArray();
+    private static boolean finished = false;
+
+    public static synchronized void begin(@NonNull String name) {
+        if (finished) return;
+
+        long now = SystemClock.elapsedRealtimeNanos();
+        if (startNanos < 0) {
+            startNanos = now;
+        }
+        Trace.beginSection(name);
+        openPhases.push(new Phase(name, now));
+    }
+
+    public static synchronized void end() {
+        if (finished || openPhases.isEmpty()) return;
+
+        Trace.endSection();
+        Phase phase = openPhases.pop();
+        long now = SystemClock.elapsedRealtimeNanos();
+        try {
+            phases.put(new JSONObject()
+                    .put("name", phase.name)
+                    .put("depth", openPhases.size())
+                    .put("startMs", toMillis(phase.startNanos - startNanos))
+                    .put("durationMs", toMillis(now - phase.startNanos)));
+        } catch (JSONException e) {
+            Log.e(TAG, "could not record " + phase.name, e);
+        }
+    }
+
+    /**
+     * Close the phases still open and store the trace in the background.
+     */
+    public static synchronized void finish(@NonNull Context context) {
+        if (finished || startNanos < 0) return;
+
+        while (!openPhases.isEmpty()) {
+            end();
+        }
+        finished = true;
+
+        long processStartMillis = -1;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            processStartMillis = startNanos / NANOS_PER_MILLI - Process.getStartElapsedRealtime();
+        }
+
+        JSONObject trace;
+        try {
+            trace = new JSONObject()
+                    .put("timestamp", System.currentTimeMillis())
+                    .put("launchedForUi", DeferredInitializer.isLaunchedForUi())
+                    .put("processStartMs", processStartMillis)
+                    .put("totalMs", toMillis(SystemClock.elapsedRealtimeNanos() - startNanos))
+                    .put("phases", phases);
+        } catch (JSONException e) {
+            Log.e(TAG, "could not record the start", e);
+            return;
+        }
+
+        Context applicationContext = context.getApplicationContext();
+        BackgroundExecutor.execute(() -> store(applicationContext, trace));
+    }
+
+    /**
+     * Get the last cold starts, oldest first.
+     */
+    @NonNull
+    public static synchronized JSONArray getTraces(@NonNull Context context) {
+        String traces = getPreferences(context).getString(KEY_TRACES, null);
+        if (traces == null) return new JSONArray();
+
+        try {
+            return new JSONArray(traces);
+        } catch (JSONException e) {
+            Log.e(TAG, "discarding invalid traces", e);
+            return new JSONArray();
+        }
+    }
+
+    private static synchronized void store(Context context, JSONObject trace) {
+        JSONArray traces = getTraces(context);
+        traces.put(trace);
+
+        JSONArray kept = new JSONArray();
+        for (int i = Math.max(0, traces.length() - MAX_TRACES); i < traces.length(); i++) {
+            kept.put(traces.opt(i));
+        }
+        getPreferences(context).edit().putString(KEY_TRACES, kept.toString()).apply();
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        // Timings are not sensitive, plain preferences avoid the cost of the encrypted ones at startup
+        return context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / NANOS_PER_MILLI;
+    }
+
+    private static class Phase {
+        private final String name;
+        private final long startNanos;
+
+        Phase(String name, long startNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.status;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import org.dpppt.android.sdk.DP3T;
+import org.dpppt.android.sdk.internal.util.LocationServiceUtil;
+
+import fct.inesctec.stayaway.tracing.internal.util.DeviceFeatureHelper;
+import fct.inesctec.stayaway.tracing.internal.util.DeviceInfo;
+import fct.inesctec.stayaway.tracing.internal.util.SpecialBatterySystemHelper;
+import fct.inesctec.stayaway.tracing.internal.util.WritableMapHelper;
+
+/**
+ * Everything the home screen shows, read on the calling thread and sent to JS in one bridge call.
+ *
+ * The reads are cheap, so they are done one after the other. The status is read last: it becomes
+ * the base for the following patches, which must only happen once the whole state reaches JS.
+ *
+ * @example
+ * {
+ *     status : TracingStatus (as getStatus)
+ *     tracingEnabled : boolean
+ *     locationServiceEnabled : boolean
+ *     bluetoothServiceEnabled : boolean
+ *     ignoringBatteryOptimizations : boolean
+ *     specialBatteryOptimizationSystem : boolean
+ *     locationlessScanning : boolean
+ *     info : DeviceInfo (as getInfo)
+ * }
+ */
+public class DashboardState {
+
+    public static void load(@NonNull Context context, @NonNull Promise promise) {
+        WritableMap map = new WritableNativeMap();
+        try {
+            map.putBoolean("tracingEnabled", DP3T.isTracingEnabled(context));
+            map.putBoolean("locationServiceEnabled", LocationServiceUtil.isLocationEnabled(context));
+            map.putBoolean("bluetoothServiceEnabled", DeviceFeatureHelper.isBluetoothEnabled());
+            map.putBoolean("ignoringBatteryOptimizations", DeviceFeatureHelper.isBatteryOptimizationDeactivated(context));
+            map.putBoolean("specialBatteryOptimizationSystem", SpecialBatterySystemHelper.hasSpecialBatterySystem());
+            map.putBoolean("locationlessScanning", DeviceFeatureHelper.supportsLocationlessScanning(context));
+            map.putMap("info", WritableMapHelper.wrapDeviceInfo(DeviceInfo.getInstance()));
+            map.putMap("status", StatusEventEncoder.encodeSnapshot(context));
+        } catch (RuntimeException e) {
+            promise.reject(e);
+            return;
+        }
+        promise.resolve(map);
+    }
+}
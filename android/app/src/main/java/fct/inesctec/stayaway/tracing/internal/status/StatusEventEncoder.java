@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.status;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import org.dpppt.android.sdk.TracingStatus;
+import org.dpppt.android.sdk.models.ExposureDay;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import fct.inesctec.stayaway.tracing.internal.util.WritableMapHelper;
+
+/**
+ * Encodes the status sent to JS.
+ *
+ * By default every update carries the full status. Once patches are enabled, updates only carry
+ * what changed since the last status sent to JS:
+ *
+ * @example
+ * {
+ *     patch : true
+ *     sequence : int
+ *     baseSequence : int
+ *     lastSyncDate : long (only if changed)
+ *     infectionStatus : int (only if changed)
+ *     errors : List<ErrorState> (only if changed)
+ *     addedExposureDays : List<ExposureDay> (only if any)
+ *     removedExposureDayIds : List<int> (only if any)
+ * }
+ *
+ * A patch applies to the status whose sequence is baseSequence. On a gap JS resyncs with getStatus,
+ * which sends the full status and makes it the new base.
+ */
+public class StatusEventEncoder {
+
+    // Held while reading the SDK and numbering the result, so sequences follow the order of the reads
+    private static final Object readLock = new Object();
+    // Only guards the state below and is never held while reading the SDK, so the synchronous
+    // accessors can take it on the JS thread
+    private static final Object lock = new Object();
+
+    private static boolean patchesEnabled = false;
+
+    private static TracingStatus baseline;
+    private static int sequence = 0;
+
+    public static void setPatchesEnabled(boolean enabled) {
+        synchronized (lock) {
+            patchesEnabled = enabled;
+            baseline = null;
+        }
+    }
+
+    /**
+     * Encode the full status, which becomes the base for the following patches.
+     */
+    public static WritableMap encodeSnapshot(@NonNull Context context) {
+        synchronized (readLock) {
+            // The map is built from the status read here, so both come from the same SDK read
+            TracingStatus status = TracingStatusCache.getStatus(context);
+            return snapshot(status, TracingStatusCache.getStatusMap(status));
+        }
+    }
+
+    /**
+     * Encode the full status only if it is cached, so it can be read on the JS thread without
+     * touching the SDK database. Null when JS has to use the asynchronous getStatus.
+     */
+    @Nullable
+    public static WritableMap encodeCachedSnapshot() {
+        synchronized (lock) {
+            // Peeked under the lock, an update numbered after this one has read a newer status
+            TracingStatus status = TracingStatusCache.peekStatus();
+            if (status == null) return null;
+            // Wrapped here rather than copied from the cache, whose lock may be held by an SDK read
+            return snapshot(status, WritableMapHelper.wrapTracingStatus(status));
+        }
+    }
+
+    private static WritableMap snapshot(TracingStatus status, WritableMap statusMap) {
+        synchronized (lock) {
+            if (patchesEnabled) {
+                baseline = status;
+                statusMap.putInt("sequence", ++sequence);
+            }
+        }
+        return statusMap;
+    }
+
+    /**
+     * Encode an update event, as a patch when enabled and a base is known.
+     */
+    public static WritableMap encodeUpdate(@NonNull Context context) {
+        synchronized (readLock) {
+            TracingStatus status = TracingStatusCache.getStatus(context);
+            synchronized (lock) {
+                if (patchesEnabled && baseline != null) {
+                    WritableMap patch = diff(baseline, status);
+                    patch.putInt("baseSequence", sequence);
+                    patch.putInt("sequence", ++sequence);
+                    baseline = status;
+                    return patch;
+                }
+            }
+            return snapshot(status, TracingStatusCache.getStatusMap(status));
+        }
+    }
+
+    private static WritableMap diff(TracingStatus from, TracingStatus to) {
+        WritableMap patch = new WritableNativeMap();
+        patch.putBoolean("patch", true);
+
+        if (from.getLastSyncDate() != to.getLastSyncDate()) {
+            patch.putDouble("lastSyncDate", to.getLastSyncDate());
+        }
+
+        if (from.getInfectionStatus() != to.getInfectionStatus()) {
+            patch.putInt("infectionStatus", to.getInfectionStatus().ordinal());
+        }
+
+        if (!new HashSet<>(from.getErrors()).equals(new HashSet<>(to.getErrors()))) {
+            patch.putArray("errors", WritableMapHelper.wrapErrors(to.getErrors()));
+        }
+
+        Map<Integer, ExposureDay> previousDays = new HashMap<>();
+        for (ExposureDay exposureDay : from.getExposureDays()) {
+            previousDays.put(exposureDay.getId(), exposureDay);
+        }
+
+        WritableArray addedDays = new WritableNativeArray();
+        WritableArray removedDayIds = new WritableNativeArray();
+        boolean hasAdded = false;
+        boolean hasRemoved = false;
+
+        for (ExposureDay exposureDay : to.getExposureDays()) {
+            ExposureDay previousDay = previousDays.remove(exposureDay.getId());
+            if (previousDay != null && isSameDay(previousDay, exposureDay)) continue;
+
+            if (previousDay != null) {
+                // Changed days are sent as removed and added again
+                removedDayIds.pushInt(previousDay.getId());
+                hasRemoved = true;
+            }
+            addedDays.pushMap(WritableMapHelper.wrapExposureDay(exposureDay));
+            hasAdded = true;
+        }
+
+        for (ExposureDay exposureDay : previousDays.values()) {
+            removedDayIds.pushInt(exposureDay.getId());
+            hasRemoved = true;
+        }
+
+        if (hasAdded) patch.putArray("addedExposureDays", addedDays);
+        if (hasRemoved) patch.putArray("removedExposureDayIds", removedDayIds);
+
+        return patch;
+    }
+
+    private static boolean isSameDay(ExposureDay a, ExposureDay b) {
+        return a.getReportDate() == b.getReportDate() &&
+                a.getExposedDate().getStartOfDayTimestamp() == b.getExposedDate().getStartOfDayTimestamp();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.status;
+
+import android.bluetooth.BluetoothAdapter;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.location.LocationManager;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import org.dpppt.android.sdk.DP3T;
+import org.dpppt.android.sdk.TracingStatus;
+
+import fct.inesctec.stayaway.tracing.internal.util.WritableMapHelper;
+
+/**
+ * Last {@link TracingStatus} read from the SDK together with its bridge representation.
+ *
+ * Reading the status hits the SDK database and preferences, so it is read once per update and
+ * served from memory until the next {@link DP3T#ACTION_UPDATE} or device state change invalidates it.
+ */
+public class TracingStatusCache {
+
+    // Safety net for error states that change without any broadcast
+    private static final long MAX_AGE_MILLIS = 60 * 1000L;
+
+    private static class Entry {
+        final TracingStatus status;
+        final long loadedAt;
+
+        Entry(TracingStatus status, long loadedAt) {
+            this.status = status;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static volatile boolean enabled = false;
+
+    // Volatile so peekStatus can read it without waiting for an SDK read holding the lock
+    private static volatile Entry entry;
+    private static WritableNativeMap statusMap;
+
+    /**
+     * Start serving the status from memory. Must only be called once the app listens to SDK updates,
+     * otherwise nothing would invalidate the cache.
+     */
+    public static synchronized void enable(@NonNull Context context) {
+        if (enabled) return;
+
+        // The SDK computes its error states from the live device state
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(BluetoothAdapter.ACTION_STATE_CHANGED);
+        filter.addAction(LocationManager.MODE_CHANGED_ACTION);
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidate();
+            }
+        }, filter);
+
+        enabled = true;
+    }
+
+    public static synchronized void invalidate() {
+        entry = null;
+        statusMap = null;
+    }
+
+    public static synchronized TracingStatus getStatus(@NonNull Context context) {
+        if (!enabled) {
+            return DP3T.getStatus(context);
+        }
+
+        Entry current = entry;
+        if (current == null || SystemClock.elapsedRealtime() - current.loadedAt > MAX_AGE_MILLIS) {
+            current = new Entry(DP3T.getStatus(context), SystemClock.elapsedRealtime());
+            entry = current;
+            statusMap = null;
+        }
+        return current.status;
+    }
+
+    /**
+     * Get the cached status without reading the SDK, null if there is none or it is too old.
+     * Never blocks, even while another thread reads the SDK.
+     */
+    @Nullable
+    public static TracingStatus peekStatus() {
+        Entry current = entry;
+        if (!enabled || current == null || SystemClock.elapsedRealtime() - current.loadedAt > MAX_AGE_MILLIS) {
+            return null;
+        }
+        return current.status;
+    }
+
+    /**
+     * Get the given status ready to be sent over the bridge. Each call returns a new map, since maps
+     * are consumed when sent to JS.
+     */
+    public static synchronized WritableMap getStatusMap(@NonNull TracingStatus tracingStatus) {
+        Entry current = entry;
+        if (!enabled || current == null || tracingStatus != current.status) {
+            return WritableMapHelper.wrapTracingStatus(tracingStatus);
+        }
+
+        if (statusMap == null) {
+            statusMap = (WritableNativeMap) WritableMapHelper.wrapTracingStatus(tracingStatus);
+        }
+
+        // Copied natively, without walking the exposure days again
+        WritableNativeMap copy = new WritableNativeMap();
+        copy.merge(statusMap);
+        return copy;
+    }
+}
@@ -22,7 +22,9 @@ package fct.inesctec.stayaway.tracing.internal.storage;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.security.crypto.EncryptedSharedPreferences;
@@ -30,6 +32,16 @@ import androidx.security.crypto.MasterKeys;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import fct.inesctec.stayaway.tracing.internal.metrics.Metrics;
+import fct.inesctec.stayaway.tracing.internal.metrics.MetricsRegistry;
+import fct.inesctec.stayaway.tracing.internal.util.BackgroundExecutor;
 
 public class SecureStorage {
 
@@ -39,6 +51,9 @@ public class SecureStorage {
     private static final String KEY_INFORM_CODE_REQ = "inform_code_req";
     private static final String KEY_INFORM_TOKEN_REQ = "inform_token_req";
     private static final String KEY_LAST_SHOWN_CONTACT_ID = "last_shown_contact_id";
+    private static final String KEY_NEWEST_EXPOSURE_TIMESTAMP = "newest_exposure_timestamp";
+    private static final String KEY_NEWEST_EXPOSURE_ID = "newest_exposure_id";
+    private static final String KEY_NEWEST_EXPOSURE_SEEN_ID = "newest_exposure_seen_id";
     private static final String KEY_LAST_CONFIG_LOAD_SUCCESS = "last_config_load_success";
     private static final String KEY_LAST_CONFIG_LOAD_SUCCESS_APP_VERSION = "last_config_load_success_app_version";
 	private static final String KEY_LAST_CONFIG_LOAD_SUCCESS_SDK_INT = "last_config_load_success_sdk_int";
@@ -46,13 +61,25 @@ public class SecureStorage {
     private static final String KEY_CONFIG_INFOBOX_TEXT = "ghettobox_text";
     private static final String KEY_CONFIG_INFOBOX_LINK = "ghettobox_link";
     private static final String KEY_CONFIG_INFOBOX_ID = "ghettobox_id";
+    private static final String KEY_CONFIG_ETAG = "config_etag";
+    private static final String KEY_CONFIG_LAST_MODIFIED = "config_last_modified";
+    private static final String KEY_CONFIG_VERSION_NAME = "config_version_name";
+    private static final String KEY_CONFIG_VERSION_BUILD = "config_version_build";
     private static final String KEY_T_DUMMY = "KEY_T_DUMMY";
+    private static final String KEY_INSTALL_ID = "install_id";
+    private static final String KEY_CONFIG_MAX_AGE = "config_max_age";
+    private static final String KEY_CONFIG_SCHEDULED_INTERVAL = "config_scheduled_interval";
+    private static final String KEY_CONFIG_CONSECUTIVE_FAILURES = "config_consecutive_failures";
+    private static final String KEY_CONFIG_CIRCUIT_OPEN_UNTIL = "config_circuit_open_until";
 
-    private static SecureStorage instance;
+    private static final AtomicReference<FutureTask<SecureStorage>> instance = new AtomicReference<>();
+    private static final AtomicInteger constructionCount = new AtomicInteger();
 
     private SharedPreferences prefs;
 
     private SecureStorage(@NonNull Context context) {
+        constructionCount.incrementAndGet();
+        long startTime = SystemClock.elapsedRealtime();
         try {
             String masterKeys = MasterKeys.getOrCreate(MasterKeys.AES256_GCM_SPEC);
             this.prefs = EncryptedSharedPreferences
@@ -62,27 +89,102 @@ public class SecureStorage {
             this.prefs = null;
             e.printStackTrace();
         }
+        MetricsRegistry.histogram(Metrics.SECURE_STORAGE_INIT_LATENCY).record(SystemClock.elapsedRealtime() - startTime);
+    }
+
+    /**
+     * Start creating the encrypted preferences on a background thread.
+     *
+     * Creating the Keystore master key and loading the keysets is slow, warming up early keeps
+     * it off the main thread. Calling it more than once returns the same pending instance.
+     */
+    public static Future<SecureStorage> warmUp(@NonNull Context context) {
+        FutureTask<SecureStorage> task = instance.get();
+        if (task == null) {
+            FutureTask<SecureStorage> newTask = newInitTask(context);
+            if (instance.compareAndSet(null, newTask)) {
+                BackgroundExecutor.execute(newTask);
+                return newTask;
+            }
+            task = instance.get();
+        }
+        return task;
     }
 
+    /**
+     * Get the storage, waiting for a pending warm-up if there is one.
+     */
     public static SecureStorage getInstance(Context context) {
-        if (instance == null) {
-            instance = new SecureStorage(context);
+        FutureTask<SecureStorage> task = instance.get();
+        if (task == null) {
+            instance.compareAndSet(null, newInitTask(context));
+            task = instance.get();
+        }
+        // Initializes on the calling thread if nobody started it yet, no-op if it is running or done
+        task.run();
+        return await(task);
+    }
+
+    @VisibleForTesting
+    static int getConstructionCount() {
+        return constructionCount.get();
+    }
+
+    /**
+     * Forget the instance, so the next call creates it again. The app creates it at startup,
+     * before any test runs.
+     */
+    @VisibleForTesting
+    static void resetInstance() {
+        instance.set(null);
+    }
+
+    private static FutureTask<SecureStorage> newInitTask(@NonNull Context context) {
+        Context applicationContext = context.getApplicationContext();
+        return new FutureTask<>(() -> new SecureStorage(applicationContext));
+    }
+
+    private static SecureStorage await(Future<SecureStorage> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("SecureStorage initialization failed", e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
-        return instance;
+    }
+
+    /**
+     * Apply several changes with a single write of the encrypted preferences file.
+     *
+     * @param transaction The changes to apply
+     */
+    public void edit(@NonNull Transaction transaction) {
+        MetricsRegistry.counter(Metrics.SECURE_STORAGE_WRITE).increment();
+        long startTime = SystemClock.elapsedRealtime();
+
+        SharedPreferences.Editor editor = prefs.edit();
+        transaction.apply(new Batch(editor));
+        editor.apply();
+
+        MetricsRegistry.histogram(Metrics.SECURE_STORAGE_APPLY_LATENCY).record(SystemClock.elapsedRealtime() - startTime);
     }
 
     public void saveInformTimeAndCodeAndToken(String informCode, String informToken) {
-        prefs.edit().putLong(KEY_INFORM_TIME_REQ, System.currentTimeMillis())
-                .putString(KEY_INFORM_CODE_REQ, informCode)
-                .putString(KEY_INFORM_TOKEN_REQ, informToken)
-                .apply();
+        edit(batch -> batch.setInform(System.currentTimeMillis(), informCode, informToken));
     }
 
     public void clearInformTimeAndCodeAndToken() {
-        prefs.edit().remove(KEY_INFORM_TIME_REQ)
-                .remove(KEY_INFORM_CODE_REQ)
-                .remove(KEY_INFORM_TOKEN_REQ)
-                .apply();
+        edit(batch -> batch.clearInform());
     }
 
     public long getLastInformRequestTime() {
@@ -99,7 +201,19 @@ public class SecureStorage {
     }
 
     public void setLastShownContactId(int contactId) {
-        prefs.edit().putInt(KEY_LAST_SHOWN_CONTACT_ID, contactId).apply();
+        edit(batch -> batch.setLastShownContactId(contactId));
+    }
+
+    public long getNewestExposureTimestamp() {
+        return prefs.getLong(KEY_NEWEST_EXPOSURE_TIMESTAMP, 0);
+    }
+
+    public int getNewestExposureId() {
+        return prefs.getInt(KEY_NEWEST_EXPOSURE_ID, -1);
+    }
+
+    public int getNewestExposureSeenId() {
+        return prefs.getInt(KEY_NEWEST_EXPOSURE_SEEN_ID, -1);
     }
 
     public long getLastConfigLoadSuccess() {
@@ -107,7 +221,7 @@ public class SecureStorage {
     }
 
     public void setLastConfigLoadSuccess(long time) {
-        prefs.edit().putLong(KEY_LAST_CONFIG_LOAD_SUCCESS, time).apply();
+        edit(batch -> batch.setLastConfigLoadSuccess(time));
     }
 
     public int getLastConfigLoadSuccessAppVersion() {
@@ -115,7 +229,7 @@ public class SecureStorage {
 	}
 
 	public void setLastConfigLoadSuccessAppVersion(int appVersion) {
-		prefs.edit().putInt(KEY_LAST_CONFIG_LOAD_SUCCESS_APP_VERSION, appVersion).apply();
+		edit(batch -> batch.setLastConfigLoadSuccessAppVersion(appVersion));
 	}
 
 	public int getLastConfigLoadSuccessSdkInt() {
@@ -123,11 +237,11 @@ public class SecureStorage {
 	}
 
 	public void setLastConfigLoadSuccessSdkInt(int sdkInt) {
-		prefs.edit().putInt(KEY_LAST_CONFIG_LOAD_SUCCESS_SDK_INT, sdkInt).apply();
+		edit(batch -> batch.setLastConfigLoadSuccessSdkInt(sdkInt));
 	}
 
     public void setInfoboxTitle(String title) {
-        prefs.edit().putString(KEY_CONFIG_INFOBOX_TITLE, title).apply();
+        edit(batch -> batch.setInfoboxTitle(title));
     }
 
     public String getInfoboxTitle() {
@@ -135,7 +249,7 @@ public class SecureStorage {
     }
 
     public void setInfoboxText(String text) {
-        prefs.edit().putString(KEY_CONFIG_INFOBOX_TEXT, text).apply();
+        edit(batch -> batch.setInfoboxText(text));
     }
 
     public String getInfoboxText() {
@@ -143,7 +257,7 @@ public class SecureStorage {
     }
 
     public void setInfoboxLink(String link) {
-        prefs.edit().putString(KEY_CONFIG_INFOBOX_LINK, link).apply();
+        edit(batch -> batch.setInfoboxLink(link));
     }
 
     public String getInfoboxLink() {
@@ -151,16 +265,195 @@ public class SecureStorage {
     }
 
     public void setInfoboxId(String id) {
-        prefs.edit().putString(KEY_CONFIG_INFOBOX_ID, id).apply();
+        edit(batch -> batch.setInfoboxId(id));
     }
 
     public String getInfoboxId() {
         return prefs.getString(KEY_CONFIG_INFOBOX_ID, null);
     }
 
+    public void setConfigETag(String eTag) {
+        edit(batch -> batch.setConfigETag(eTag));
+    }
+
+    public String getConfigETag() {
+        return prefs.getString(KEY_CONFIG_ETAG, null);
+    }
+
+    public void setConfigLastModified(String lastModified) {
+        edit(batch -> batch.setConfigLastModified(lastModified));
+    }
+
+    public String getConfigLastModified() {
+        return prefs.getString(KEY_CONFIG_LAST_MODIFIED, null);
+    }
+
+    /**
+     * Latest app version announced by the last parsed config, null if no config was parsed yet.
+     */
+    public String getConfigVersionName() {
+        return prefs.getString(KEY_CONFIG_VERSION_NAME, null);
+    }
+
+    public String getConfigVersionBuild() {
+        return prefs.getString(KEY_CONFIG_VERSION_BUILD, null);
+    }
+
     public long getTDummy() { return prefs.getLong(KEY_T_DUMMY, -1); }
 
 	public void setTDummy(long time) {
-		prefs.edit().putLong(KEY_T_DUMMY, time).apply();
+		edit(batch -> batch.setTDummy(time));
 	}
+
+    /**
+     * Random id of this install, created on first use. Never leaves the device.
+     */
+    public synchronized String getInstallId() {
+        String installId = prefs.getString(KEY_INSTALL_ID, null);
+        if (installId != null) {
+            return installId;
+        }
+        String newInstallId = UUID.randomUUID().toString();
+        edit(batch -> batch.setInstallId(newInstallId));
+        return newInstallId;
+    }
+
+    public long getConfigMaxAge() {
+        return prefs.getLong(KEY_CONFIG_MAX_AGE, -1);
+    }
+
+    public long getConfigScheduledInterval() {
+        return prefs.getLong(KEY_CONFIG_SCHEDULED_INTERVAL, -1);
+    }
+
+    public void setConfigScheduledInterval(long interval) {
+        edit(batch -> batch.setConfigScheduledInterval(interval));
+    }
+
+    public int getConfigConsecutiveFailures() {
+        return prefs.getInt(KEY_CONFIG_CONSECUTIVE_FAILURES, 0);
+    }
+
+    public long getConfigCircuitOpenUntil() {
+        return prefs.getLong(KEY_CONFIG_CIRCUIT_OPEN_UNTIL, 0);
+    }
+
+    public interface Transaction {
+        void apply(@NonNull Batch batch);
+    }
+
+    /**
+     * Pending changes of a {@link #edit(Transaction)} call, committed together once the transaction returns.
+     */
+    public static class Batch {
+
+        private final SharedPreferences.Editor editor;
+
+        private Batch(SharedPreferences.Editor editor) {
+            this.editor = editor;
+        }
+
+        public Batch setInform(long time, String informCode, String informToken) {
+            editor.putLong(KEY_INFORM_TIME_REQ, time);
+            editor.putString(KEY_INFORM_CODE_REQ, informCode);
+            editor.putString(KEY_INFORM_TOKEN_REQ, informToken);
+            return this;
+        }
+
+        public Batch clearInform() {
+            editor.remove(KEY_INFORM_TIME_REQ);
+            editor.remove(KEY_INFORM_CODE_REQ);
+            editor.remove(KEY_INFORM_TOKEN_REQ);
+            return this;
+        }
+
+        public Batch setLastShownContactId(int contactId) {
+            editor.putInt(KEY_LAST_SHOWN_CONTACT_ID, contactId);
+            return this;
+        }
+
+        public Batch setNewestExposure(long timestamp, int id, int seenId) {
+            editor.putLong(KEY_NEWEST_EXPOSURE_TIMESTAMP, timestamp);
+            editor.putInt(KEY_NEWEST_EXPOSURE_ID, id);
+            editor.putInt(KEY_NEWEST_EXPOSURE_SEEN_ID, seenId);
+            return this;
+        }
+
+        public Batch setLastConfigLoadSuccess(long time) {
+            editor.putLong(KEY_LAST_CONFIG_LOAD_SUCCESS, time);
+            return this;
+        }
+
+        public Batch setLastConfigLoadSuccessAppVersion(int appVersion) {
+            editor.putInt(KEY_LAST_CONFIG_LOAD_SUCCESS_APP_VERSION, appVersion);
+            return this;
+        }
+
+        public Batch setLastConfigLoadSuccessSdkInt(int sdkInt) {
+            editor.putInt(KEY_LAST_CONFIG_LOAD_SUCCESS_SDK_INT, sdkInt);
+            return this;
+        }
+
+        public Batch setInfoboxTitle(String title) {
+            editor.putString(KEY_CONFIG_INFOBOX_TITLE, title);
+            return this;
+        }
+
+        public Batch setInfoboxText(String text) {
+            editor.putString(KEY_CONFIG_INFOBOX_TEXT, text);
+            return this;
+        }
+
+        public Batch setInfoboxLink(String link) {
+            editor.putString(KEY_CONFIG_INFOBOX_LINK, link);
+            return this;
+        }
+
+        public Batch setInfoboxId(String id) {
+            editor.putString(KEY_CONFIG_INFOBOX_ID, id);
+            return this;
+        }
+
+        public Batch setConfigETag(String eTag) {
+            editor.putString(KEY_CONFIG_ETAG, eTag);
+            return this;
+        }
+
+        public Batch setConfigLastModified(String lastModified) {
+            editor.putString(KEY_CONFIG_LAST_MODIFIED, lastModified);
+            return this;
+        }
+
+        public Batch setConfigVersion(String name, String build) {
+            editor.putString(KEY_CONFIG_VERSION_NAME, name);
+            editor.putString(KEY_CONFIG_VERSION_BUILD, build);
+            return this;
+        }
+
+        public Batch setTDummy(long time) {
+            editor.putLong(KEY_T_DUMMY, time);
+            return this;
+        }
+
+        public Batch setInstallId(String installId) {
+            editor.putString(KEY_INSTALL_ID, installId);
+            return this;
+        }
+
+        public Batch setConfigMaxAge(long maxAge) {
+            editor.putLong(KEY_CONFIG_MAX_AGE, maxAge);
+            return this;
+        }
+
+        public Batch setConfigScheduledInterval(long interval) {
+            editor.putLong(KEY_CONFIG_SCHEDULED_INTERVAL, interval);
+            return this;
+        }
+
+        public Batch setConfigCircuit(int consecutiveFailures, long openUntil) {
+            editor.putInt(KEY_CONFIG_CONSECUTIVE_FAILURES, consecutiveFailures);
+            editor.putLong(KEY_CONFIG_CIRCUIT_OPEN_UNTIL, openUntil);
+            return this;
+        }
+    }
 }
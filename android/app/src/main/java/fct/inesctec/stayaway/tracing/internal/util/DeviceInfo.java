@@ -5,12 +5,10 @@ import android.os.Build;
 import fct.inesctec.stayaway.BuildConfig;
 
 public class DeviceInfo {
-    private String OSVersion;
-    private String deviceModel;
-    private String versionName;
-    private String versionCode;
-
-    private static DeviceInfo instance;
+    private final String OSVersion;
+    private final String deviceModel;
+    private final String versionName;
+    private final String versionCode;
 
     private DeviceInfo() {
         this.OSVersion = Integer.toString(Build.VERSION.SDK_INT);
@@ -19,12 +17,13 @@ public class DeviceInfo {
         this.versionCode = Integer.toString(BuildConfig.VERSION_CODE);
     }
 
-    public static DeviceInfo getInstance() {
-        if (instance == null) {
-            instance = new DeviceInfo();
-        }
+    // Lazily created by the class loader on first access, which is thread-safe without locking
+    private static class InstanceHolder {
+        private static final DeviceInfo INSTANCE = new DeviceInfo();
+    }
 
-        return instance;
+    public static DeviceInfo getInstance() {
+        return InstanceHolder.INSTANCE;
     }
 
     public String getOSVersion() {
@@ -20,12 +20,25 @@
 
 package fct.inesctec.stayaway.tracing.internal.util;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
 import java.security.SecureRandom;
+import java.util.Random;
 
+/**
+ * Samples of the standard exponential distribution (rate 1), from a single shared {@link SecureRandom}.
+ */
 public class ExponentialDistribution {
 
+    private static final SecureRandom random = new SecureRandom();
+
     public static double sampleFromStandard() {
-        SecureRandom random = new SecureRandom();
+        return sample(random);
+    }
+
+    @VisibleForTesting
+    static double sample(@NonNull Random random) {
         return -Math.log(1.0d - random.nextDouble());
     }
 
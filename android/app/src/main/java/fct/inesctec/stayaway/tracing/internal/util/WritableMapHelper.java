@@ -17,6 +17,15 @@ import com.facebook.react.bridge.WritableNativeMap;
 
 import org.dpppt.android.sdk.TracingStatus;
 import org.dpppt.android.sdk.models.ExposureDay;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Collection;
+import java.util.Map;
+
+import fct.inesctec.stayaway.tracing.internal.metrics.Histogram;
+import fct.inesctec.stayaway.tracing.internal.networking.RetryPolicy;
 
 public class WritableMapHelper {
     /**
@@ -36,27 +45,49 @@ public class WritableMapHelper {
         WritableArray exposureDays = new WritableNativeArray();
 
         for(ExposureDay exposureDay: status.getExposureDays() ) {
-            WritableMap exposureDayMap = new WritableNativeMap();
-
-            exposureDayMap.putInt("id", exposureDay.getId());
-            exposureDayMap.putDouble("exposedDate", exposureDay.getExposedDate().getStartOfDayTimestamp());
-            exposureDayMap.putDouble("reportDate", exposureDay.getReportDate());
-
-            exposureDays.pushMap(exposureDayMap);
+            exposureDays.pushMap(wrapExposureDay(exposureDay));
         }
 
         writableMap.putArray("exposureDays", exposureDays);
 
         // Format errors
+        writableMap.putArray("errors", wrapErrors(status.getErrors()));
+
+        return writableMap;
+    }
+
+    /**
+     * Convert ExposureDay to WritableMap.
+     *
+     * @param exposureDay
+     *
+     * @return WritableMap
+     */
+    public static WritableMap wrapExposureDay(ExposureDay exposureDay) {
+        WritableMap exposureDayMap = new WritableNativeMap();
+
+        exposureDayMap.putInt("id", exposureDay.getId());
+        exposureDayMap.putDouble("exposedDate", exposureDay.getExposedDate().getStartOfDayTimestamp());
+        exposureDayMap.putDouble("reportDate", exposureDay.getReportDate());
+
+        return exposureDayMap;
+    }
+
+    /**
+     * Convert tracing errors to WritableArray.
+     *
+     * @param errorStates
+     *
+     * @return WritableArray
+     */
+    public static WritableArray wrapErrors(Collection<TracingStatus.ErrorState> errorStates) {
         WritableArray errors = new WritableNativeArray();
 
-        for(org.dpppt.android.sdk.TracingStatus.ErrorState error: status.getErrors() ) {
+        for(TracingStatus.ErrorState error: errorStates ) {
             errors.pushInt(error.ordinal());
         }
 
-        writableMap.putArray("errors", errors);
-
-        return writableMap;
+        return errors;
     }
 
     /**
@@ -76,4 +107,90 @@ public class WritableMapHelper {
 
         return writableMap;
     }
+
+    /**
+     * Convert the startup traces to WritableArray.
+     *
+     * @param traces
+     *
+     * @return WritableArray
+     */
+    public static WritableArray wrapStartupTraces(JSONArray traces) throws JSONException {
+        WritableArray writableArray = new WritableNativeArray();
+
+        for (int i = 0; i < traces.length(); i++) {
+            JSONObject trace = traces.getJSONObject(i);
+            WritableMap traceMap = new WritableNativeMap();
+
+            traceMap.putDouble("timestamp", trace.getLong("timestamp"));
+            traceMap.putBoolean("launchedForUi", trace.optBoolean("launchedForUi"));
+            traceMap.putDouble("processStartMs", trace.getDouble("processStartMs"));
+            traceMap.putDouble("totalMs", trace.getDouble("totalMs"));
+
+            WritableArray phases = new WritableNativeArray();
+            JSONArray tracePhases = trace.getJSONArray("phases");
+            for (int j = 0; j < tracePhases.length(); j++) {
+                JSONObject phase = tracePhases.getJSONObject(j);
+                WritableMap phaseMap = new WritableNativeMap();
+
+                phaseMap.putString("name", phase.getString("name"));
+                phaseMap.putInt("depth", phase.getInt("depth"));
+                phaseMap.putDouble("startMs", phase.getDouble("startMs"));
+                phaseMap.putDouble("durationMs", phase.getDouble("durationMs"));
+
+                phases.pushMap(phaseMap);
+            }
+            traceMap.putArray("phases", phases);
+
+            writableArray.pushMap(traceMap);
+        }
+
+        return writableArray;
+    }
+
+    /**
+     * Convert a metrics snapshot to WritableMap.
+     *
+     * @param counters
+     * @param histograms
+     *
+     * @return WritableMap
+     */
+    public static WritableMap wrapMetrics(Map<String, Long> counters, Map<String, Histogram> histograms,
+                                          RetryPolicy.State configCircuit) {
+        WritableMap writableMap = new WritableNativeMap();
+
+        WritableMap countersMap = new WritableNativeMap();
+        for (Map.Entry<String, Long> counter : counters.entrySet()) {
+            countersMap.putDouble(counter.getKey(), counter.getValue());
+        }
+        writableMap.putMap("counters", countersMap);
+
+        WritableMap histogramsMap = new WritableNativeMap();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            WritableMap histogramMap = new WritableNativeMap();
+
+            histogramMap.putDouble("count", histogram.getCount());
+            histogramMap.putDouble("sum", histogram.getSum());
+
+            WritableArray boundsArray = new WritableNativeArray();
+            for (long bound : Histogram.BOUNDS_MILLIS) {
+                boundsArray.pushDouble(bound);
+            }
+            histogramMap.putArray("bounds", boundsArray);
+
+            WritableArray buckets = new WritableNativeArray();
+            for (long bucket : histogram.getBuckets()) {
+                buckets.pushDouble(bucket);
+            }
+            histogramMap.putArray("buckets", buckets);
+
+            histogramsMap.putMap(entry.getKey(), histogramMap);
+        }
+        writableMap.putMap("histograms", histogramsMap);
+        writableMap.putString("configCircuit", configCircuit.name());
+
+        return writableMap;
+    }
 }
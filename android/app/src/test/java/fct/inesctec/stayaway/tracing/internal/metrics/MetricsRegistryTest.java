@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MetricsRegistryTest {
+
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 10_000;
+
+    @Test
+    public void concurrentIncrementsAreNotLost() throws Exception {
+        Counter counter = MetricsRegistry.counter("test.concurrent");
+        Histogram histogram = MetricsRegistry.histogram("test.concurrent.latency");
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < ITERATIONS; j++) {
+                    counter.increment();
+                    histogram.record(j % 100);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(THREADS * ITERATIONS, counter.get());
+        assertEquals(THREADS * ITERATIONS, histogram.getCount());
+        assertEquals((long) THREADS * (ITERATIONS / 100) * (99 * 100 / 2), histogram.getSum());
+        assertEquals((long) THREADS * ITERATIONS, (long) MetricsRegistry.getCounters().get("test.concurrent"));
+    }
+
+    @Test
+    public void metricsAreCreatedOnce() {
+        assertSame(MetricsRegistry.counter("test.same"), MetricsRegistry.counter("test.same"));
+        assertSame(MetricsRegistry.histogram("test.same"), MetricsRegistry.histogram("test.same"));
+    }
+
+    @Test
+    public void valuesGoToTheFirstBucketBoundingThem() {
+        assertEquals(0, Histogram.bucketOf(0));
+        assertEquals(0, Histogram.bucketOf(1));
+        assertEquals(1, Histogram.bucketOf(2));
+        assertEquals(2, Histogram.bucketOf(3));
+        assertEquals(9, Histogram.bucketOf(1000));
+        assertEquals(10, Histogram.bucketOf(1001));
+        assertEquals(Histogram.BOUNDS_MILLIS.length - 1, Histogram.bucketOf(60000));
+        assertEquals(Histogram.BOUNDS_MILLIS.length, Histogram.bucketOf(60001));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import org.dpppt.android.sdk.DP3T;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fct.inesctec.stayaway.tracing.internal.networking.models.AuthenticationCodeRequestModel;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BackendClientTest {
+
+    private static final int ROUNDS = 3;
+
+    @Rule
+    public TemporaryFolder cacheDir = new TemporaryFolder();
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        DP3T.setUserAgent(() -> "stayaway-test");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void backendsReuseOneConnection() throws Exception {
+        for (int i = 0; i < ROUNDS; i++) {
+            server.enqueue(new MockResponse().setBody("{\"accessToken\":\"token\"}"));
+            server.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody("{}"));
+        }
+
+        String baseUrl = server.url("/").toString();
+        BackendClient backendClient = new BackendClient(cacheDir.getRoot(), baseUrl, baseUrl);
+        AuthCodeService authCodeService = backendClient.getAuthCodeService();
+        ConfigService configService = backendClient.getConfigService();
+
+        for (int i = 0; i < ROUNDS; i++) {
+            assertTrue(authCodeService.getAccessToken(new AuthenticationCodeRequestModel("000000000000", 1))
+                    .execute().isSuccessful());
+            Response<ResponseBody> config = configService.getConfigNegotiated(null, null).execute();
+            assertTrue(config.isSuccessful());
+            config.body().close();
+        }
+
+        // Every request after the first one must ride on the same connection
+        for (int i = 0; i < 2 * ROUNDS; i++) {
+            assertEquals(i, server.takeRequest().getSequenceNumber());
+        }
+        assertSame(backendClient.getHttpClient().connectionPool(),
+                backendClient.getAuthCodeHttpClient().connectionPool());
+        assertEquals(1, backendClient.getHttpClient().connectionPool().connectionCount());
+    }
+}
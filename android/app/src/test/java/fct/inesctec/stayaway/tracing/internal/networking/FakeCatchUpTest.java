@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FakeCatchUpTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long MINUTE = 60 * 1000L;
+
+    private static final long START = 1_600_000_000_000L;
+    private static final long MAX_DELAY = 48 * HOUR;
+    private static final long BUDGET = 5 * MINUTE;
+
+    @Test
+    public void outdatedRequestsAreDropped() {
+        TestClock clock = new TestClock(START, 10 * HOUR);
+
+        FakeCatchUp catchUp = new FakeCatchUp(clock, START - 100 * HOUR, MAX_DELAY, BUDGET);
+
+        // -100h, -90h, -80h, -70h, -60h and -50h are dropped, -40h is the first one sent
+        assertEquals(6, catchUp.getDropped());
+        assertEquals(START - 40 * HOUR, catchUp.getTDummy());
+        assertTrue(catchUp.hasPending());
+        assertTrue(catchUp.isTDummyChanged());
+    }
+
+    @Test
+    public void invalidTDummyIsReset() {
+        TestClock clock = new TestClock(START, 10 * HOUR);
+
+        FakeCatchUp catchUp = new FakeCatchUp(clock, -1, MAX_DELAY, BUDGET);
+
+        assertEquals(START + 10 * HOUR, catchUp.getTDummy());
+        assertFalse(catchUp.hasPending());
+        assertTrue(catchUp.isTDummyChanged());
+    }
+
+    @Test
+    public void upToDateTDummyIsUnchanged() {
+        TestClock clock = new TestClock(START, 10 * HOUR);
+
+        FakeCatchUp catchUp = new FakeCatchUp(clock, START + HOUR, MAX_DELAY, BUDGET);
+
+        assertFalse(catchUp.hasPending());
+        assertFalse(catchUp.isTDummyChanged());
+    }
+
+    @Test
+    public void catchUpStopsWhenBudgetIsExhausted() {
+        TestClock clock = new TestClock(START, HOUR);
+        FakeCatchUp catchUp = new FakeCatchUp(clock, START - 47 * HOUR, MAX_DELAY, BUDGET);
+
+        // Every request takes a minute
+        while (catchUp.hasPending() && catchUp.hasBudget()) {
+            clock.advance(MINUTE);
+            catchUp.onRequestSent();
+        }
+
+        assertEquals(5, catchUp.getSent());
+        assertTrue(catchUp.hasPending());
+        assertEquals(START - 42 * HOUR, catchUp.getTDummy());
+    }
+
+    @Test
+    public void catchUpSendsEverythingWithinBudget() {
+        TestClock clock = new TestClock(START, HOUR);
+        FakeCatchUp catchUp = new FakeCatchUp(clock, START - 3 * HOUR, MAX_DELAY, BUDGET);
+
+        while (catchUp.hasPending() && catchUp.hasBudget()) {
+            clock.advance(MINUTE);
+            catchUp.onRequestSent();
+        }
+
+        assertEquals(3, catchUp.getSent());
+        assertFalse(catchUp.hasPending());
+        // Requests planned after the start of the run are left for the next one
+        assertEquals(START, catchUp.getTDummy());
+    }
+
+    private static class TestClock implements FakeWorker.Clock {
+
+        private final long interval;
+        private long time;
+
+        TestClock(long time, long interval) {
+            this.time = time;
+            this.interval = interval;
+        }
+
+        void advance(long millis) {
+            time += millis;
+        }
+
+        @Override
+        public long syncInterval() {
+            return interval;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return time;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.Dns;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PersistentDnsTest {
+
+    private static final String HOST = "stayaway.incm.pt";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private long now;
+    private final List<Runnable> pending = new ArrayList<>();
+    private FakeDns delegate;
+
+    private static class FakeDns implements Dns {
+        InetAddress address;
+        InetAddress secondAddress;
+        int lookups = 0;
+
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            lookups++;
+            if (address == null) throw new UnknownHostException(hostname);
+            if (secondAddress == null) {
+                return Collections.singletonList(InetAddress.getByAddress(hostname, address.getAddress()));
+            }
+            return Arrays.asList(InetAddress.getByAddress(hostname, address.getAddress()),
+                    InetAddress.getByAddress(hostname, secondAddress.getAddress()));
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "dns_cache");
+        now = 1_600_000_000_000L;
+        delegate = new FakeDns();
+        delegate.address = InetAddress.getByAddress(new byte[]{10, 0, 0, 1});
+    }
+
+    private PersistentDns newDns() {
+        return new PersistentDns(file, delegate, pending::add, () -> now);
+    }
+
+    private void runPending() {
+        List<Runnable> runnables = new ArrayList<>(pending);
+        pending.clear();
+        for (Runnable runnable : runnables) {
+            runnable.run();
+        }
+    }
+
+    private static String first(List<InetAddress> addresses) {
+        return addresses.get(0).getHostAddress();
+    }
+
+    @Test
+    public void freshAnswerSurvivesRestart() throws Exception {
+        assertEquals("10.0.0.1", first(newDns().lookup(HOST)));
+
+        // A new process reads the answer from the file
+        now += PersistentDns.FRESH_MILLIS - 1;
+        PersistentDns restarted = newDns();
+        assertEquals("10.0.0.1", first(restarted.lookup(HOST)));
+        assertEquals(HOST, restarted.lookup(HOST).get(0).getHostName());
+        assertEquals(1, delegate.lookups);
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    public void staleAnswerIsServedWhileRevalidating() throws Exception {
+        newDns().lookup(HOST);
+        delegate.address = InetAddress.getByAddress(new byte[]{10, 0, 0, 2});
+        now += PersistentDns.FRESH_MILLIS;
+
+        PersistentDns dns = newDns();
+        assertEquals("10.0.0.1", first(dns.lookup(HOST)));
+        assertEquals("10.0.0.1", first(dns.lookup(HOST)));
+        // Only one refresh at a time
+        assertEquals(1, pending.size());
+
+        runPending();
+        assertEquals("10.0.0.2", first(dns.lookup(HOST)));
+        assertEquals("10.0.0.2", first(newDns().lookup(HOST)));
+        assertEquals(2, delegate.lookups);
+    }
+
+    @Test
+    public void staleAnswerIsServedWhenLookupFails() throws Exception {
+        newDns().lookup(HOST);
+        delegate.address = null;
+        now += PersistentDns.FRESH_MILLIS;
+
+        PersistentDns dns = newDns();
+        assertEquals("10.0.0.1", first(dns.lookup(HOST)));
+        runPending();
+        assertEquals("10.0.0.1", first(dns.lookup(HOST)));
+    }
+
+    @Test
+    public void expiredAnswerIsNotServed() throws Exception {
+        newDns().lookup(HOST);
+        delegate.address = null;
+        now += PersistentDns.MAX_STALE_MILLIS;
+
+        try {
+            newDns().lookup(HOST);
+            fail();
+        } catch (UnknownHostException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void connectFailureForcesLookup() throws Exception {
+        PersistentDns dns = newDns();
+        InetAddress old = dns.lookup(HOST).get(0);
+        delegate.address = InetAddress.getByAddress(new byte[]{10, 0, 0, 2});
+
+        // The answer is fresh, but its address stopped working
+        dns.onConnectFailed(HOST, old);
+        assertEquals("10.0.0.2", first(dns.lookup(HOST)));
+        assertEquals(2, delegate.lookups);
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    public void connectFailureFallsBackWhenOffline() throws Exception {
+        PersistentDns dns = newDns();
+        InetAddress old = dns.lookup(HOST).get(0);
+        delegate.address = null;
+
+        dns.onConnectFailed(HOST, old);
+        assertEquals("10.0.0.1", first(dns.lookup(HOST)));
+        assertEquals(2, delegate.lookups);
+    }
+
+    @Test
+    public void connectFailureOfOneAddressKeepsTheOthers() throws Exception {
+        delegate.secondAddress = InetAddress.getByAddress(new byte[]{10, 0, 0, 2});
+        PersistentDns dns = newDns();
+        InetAddress failing = dns.lookup(HOST).get(0);
+
+        dns.onConnectFailed(HOST, failing);
+        List<InetAddress> addresses = dns.lookup(HOST);
+        assertEquals(1, delegate.lookups);
+        assertEquals("10.0.0.2", first(addresses));
+        assertEquals("10.0.0.1", addresses.get(1).getHostAddress());
+
+        dns.onConnectFailed(HOST, addresses.get(0));
+        dns.lookup(HOST);
+        assertEquals(2, delegate.lookups);
+    }
+
+    @Test
+    public void connectFailureOfAnotherAddressIsIgnored() throws Exception {
+        PersistentDns dns = newDns();
+        dns.lookup(HOST);
+
+        dns.onConnectFailed(HOST, InetAddress.getByAddress(new byte[]{10, 0, 0, 9}));
+        dns.lookup(HOST);
+        assertEquals(1, delegate.lookups);
+    }
+
+    @Test
+    public void corruptFileIsIgnored() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{0, 0, 0, 1, 0, 0, 0, 5, 1});
+        }
+
+        assertEquals("10.0.0.1", first(newDns().lookup(HOST)));
+        assertEquals(1, delegate.lookups);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.networking;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import fct.inesctec.stayaway.tracing.internal.networking.errors.ResponseError;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    private static final long BASE = 1000;
+    private static final long MAX = 60 * 1000;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int THRESHOLD = 3;
+    private static final long OPEN = 10 * 60 * 1000;
+    private static final long NOW = 1_600_000_000_000L;
+
+    private static final int CLIENTS = 1000;
+
+    private MockWebServer server;
+    private ConfigService configService;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        configService = BackendClient.createService(server.url("/").toString(), new OkHttpClient(),
+                ConfigService.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private ResponseError fetchError(MockResponse mockResponse) throws IOException {
+        server.enqueue(mockResponse);
+        Response<?> response = configService.getConfigNegotiated(null, null).execute();
+        assertFalse(response.isSuccessful());
+        return new ResponseError(response.raw());
+    }
+
+    private static RetryPolicy newPolicy(long seed) {
+        return new RetryPolicy(BASE, MAX, MAX_ATTEMPTS, THRESHOLD, OPEN, new Random(seed));
+    }
+
+    @Test
+    public void fullJitterSpreadsClients() throws Exception {
+        ResponseError error = fetchError(new MockResponse().setResponseCode(500));
+
+        // Adjacent seeds give correlated first values, so seeds are drawn at random too
+        Random seeds = new Random(42);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS - 1; attempt++) {
+            long cap = BASE << attempt;
+            int[] quarters = new int[4];
+            for (int client = 0; client < CLIENTS; client++) {
+                RetryPolicy.Decision decision = newPolicy(seeds.nextLong()).onFailure(attempt, error, NOW);
+                assertTrue(decision.shouldRetry());
+                assertTrue(decision.getDelayMillis() >= 0 && decision.getDelayMillis() < cap);
+                quarters[(int) (4 * decision.getDelayMillis() / cap)]++;
+            }
+            // Clients failing together must not retry together
+            for (int count : quarters) {
+                assertTrue("attempt " + attempt + ": " + count, count > CLIENTS / 8);
+            }
+        }
+    }
+
+    @Test
+    public void delayIsCapped() throws Exception {
+        ResponseError error = fetchError(new MockResponse().setResponseCode(502));
+        RetryPolicy policy = new RetryPolicy(BASE, MAX, 100, 100, OPEN, new Random(0));
+        for (int attempt = 0; attempt < 99; attempt++) {
+            assertTrue(policy.onFailure(attempt, error, NOW).getDelayMillis() < MAX);
+        }
+    }
+
+    @Test
+    public void honorsRetryAfter() throws Exception {
+        ResponseError error = fetchError(new MockResponse().setResponseCode(503).setHeader("Retry-After", "30"));
+        Random seeds = new Random(42);
+        for (int client = 0; client < CLIENTS; client++) {
+            RetryPolicy.Decision decision = newPolicy(seeds.nextLong()).onFailure(0, error, NOW);
+            assertTrue(decision.shouldRetry());
+            assertTrue(decision.getDelayMillis() >= 30 * 1000);
+            assertTrue(decision.getDelayMillis() < 30 * 1000 + BASE);
+        }
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() throws Exception {
+        ResponseError notFound = fetchError(new MockResponse().setResponseCode(404));
+        assertFalse(newPolicy(0).onFailure(0, notFound, NOW).shouldRetry());
+
+        ResponseError tooMany = fetchError(new MockResponse().setResponseCode(429));
+        assertTrue(newPolicy(0).onFailure(0, tooMany, NOW).shouldRetry());
+
+        assertTrue(newPolicy(0).onFailure(0, new IOException(), NOW).shouldRetry());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        RetryPolicy policy = new RetryPolicy(BASE, MAX, MAX_ATTEMPTS, 100, OPEN, new Random(0));
+        assertTrue(policy.onFailure(MAX_ATTEMPTS - 2, new IOException(), NOW).shouldRetry());
+        assertFalse(policy.onFailure(MAX_ATTEMPTS - 1, new IOException(), NOW).shouldRetry());
+    }
+
+    @Test
+    public void circuitOpensAndHalfOpens() {
+        RetryPolicy policy = newPolicy(0);
+        for (int i = 0; i < THRESHOLD - 1; i++) {
+            policy.onFailure(0, new IOException(), NOW);
+            assertEquals(RetryPolicy.State.CLOSED, policy.getState(NOW));
+        }
+
+        RetryPolicy.Decision decision = policy.onFailure(0, new IOException(), NOW);
+        assertEquals(RetryPolicy.State.OPEN, policy.getState(NOW));
+        assertFalse(policy.allowRequest(NOW + OPEN - 1));
+        assertTrue(decision.getDelayMillis() >= OPEN);
+
+        assertEquals(RetryPolicy.State.HALF_OPEN, policy.getState(NOW + OPEN));
+        assertTrue(policy.allowRequest(NOW + OPEN));
+        // Only one trial until it completes
+        assertFalse(policy.allowRequest(NOW + OPEN));
+
+        // A failed trial opens the circuit again
+        policy.onFailure(0, new IOException(), NOW + OPEN);
+        assertEquals(RetryPolicy.State.OPEN, policy.getState(NOW + OPEN));
+
+        policy.onSuccess();
+        assertEquals(RetryPolicy.State.CLOSED, policy.getState(NOW + OPEN));
+    }
+
+    @Test
+    public void circuitSurvivesRestore() {
+        RetryPolicy policy = newPolicy(0);
+        for (int i = 0; i < THRESHOLD; i++) {
+            policy.onFailure(0, new IOException(), NOW);
+        }
+
+        // As after a process restart
+        RetryPolicy restored = newPolicy(1);
+        restored.restore(policy.getConsecutiveFailures(), policy.getOpenUntil());
+        assertEquals(RetryPolicy.State.OPEN, restored.getState(NOW + OPEN - 1));
+        assertFalse(restored.allowRequest(NOW + OPEN - 1));
+        assertTrue(restored.allowRequest(NOW + OPEN));
+    }
+
+    @Test
+    public void parsesRetryAfter() {
+        assertEquals(Long.valueOf(120 * 1000), RetryPolicy.parseRetryAfter("120", NOW));
+        // 1600000000000 is Sun, 13 Sep 2020 12:26:40 GMT
+        assertEquals(Long.valueOf(60 * 1000),
+                RetryPolicy.parseRetryAfter("Sun, 13 Sep 2020 12:27:40 GMT", NOW));
+        assertEquals(Long.valueOf(0), RetryPolicy.parseRetryAfter("Sun, 13 Sep 2020 12:00:00 GMT", NOW));
+        assertNull(RetryPolicy.parseRetryAfter("soon", NOW));
+        assertNull(RetryPolicy.parseRetryAfter(null, NOW));
+    }
+}
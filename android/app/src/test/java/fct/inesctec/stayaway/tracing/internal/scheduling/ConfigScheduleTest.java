@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.scheduling;
+
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigScheduleTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long NOW = 1_600_000_000_000L;
+
+    private static final int INSTALLS = 24000;
+    private static final int SLOTS = 24;
+
+    @Test
+    public void phaseIsStablePerInstall() {
+        String installId = UUID.randomUUID().toString();
+        long phase = ConfigSchedule.getPhaseMillis(installId, DAY);
+        assertTrue(phase >= 0 && phase < DAY);
+        assertEquals(phase, ConfigSchedule.getPhaseMillis(installId, DAY));
+    }
+
+    @Test
+    public void installsSpreadEvenlyOverTheDay() {
+        int[] perHour = new int[SLOTS];
+        for (int i = 0; i < INSTALLS; i++) {
+            long phase = ConfigSchedule.getPhaseMillis(UUID.randomUUID().toString(), DAY);
+            perHour[(int) (phase / (DAY / SLOTS))]++;
+        }
+
+        // Every hour gets its share of the load, within a generous margin
+        int expected = INSTALLS / SLOTS;
+        for (int count : perHour) {
+            assertTrue(String.valueOf(count), Math.abs(count - expected) < expected / 5);
+        }
+    }
+
+    @Test
+    public void firstFlexWindowStartsAtPhase() {
+        long flex = ConfigSchedule.getFlexMillis(DAY);
+        for (long now = NOW; now < NOW + DAY; now += TimeUnit.MINUTES.toMillis(37)) {
+            long phase = ConfigSchedule.getPhaseMillis(String.valueOf(now), DAY);
+            long delay = ConfigSchedule.getInitialDelayMillis(now, phase, DAY, flex);
+            assertTrue(delay >= 0 && delay < DAY);
+
+            // WorkManager opens the first window at enqueue time + delay + interval - flex
+            long windowStart = now + delay + DAY - flex;
+            assertEquals(phase, windowStart % DAY);
+        }
+    }
+
+    @Test
+    public void nearWindowOnlyAroundPhase() {
+        long hour = TimeUnit.HOURS.toMillis(1);
+        long flex = ConfigSchedule.getFlexMillis(DAY);
+        long phase = 10 * hour;
+        long dayStart = NOW - NOW % DAY;
+
+        assertTrue(ConfigSchedule.isNearWindow(dayStart + 10 * hour, phase, DAY, flex, 6 * hour));
+        assertTrue(ConfigSchedule.isNearWindow(dayStart + 15 * hour, phase, DAY, flex, 6 * hour));
+        assertTrue(ConfigSchedule.isNearWindow(dayStart + 5 * hour, phase, DAY, flex, 6 * hour));
+        assertFalse(ConfigSchedule.isNearWindow(dayStart + 3 * hour, phase, DAY, flex, 6 * hour));
+        assertFalse(ConfigSchedule.isNearWindow(dayStart + 17 * hour, phase, DAY, flex, 6 * hour));
+        // The window wraps around the end of the interval
+        assertTrue(ConfigSchedule.isNearWindow(dayStart + DAY + 2 * hour, 22 * hour, DAY, flex, 6 * hour));
+    }
+
+    @Test
+    public void intervalFollowsMaxAge() {
+        assertEquals(ConfigSchedule.DEFAULT_INTERVAL_MILLIS, ConfigSchedule.getIntervalMillis(-1));
+        assertEquals(ConfigSchedule.DEFAULT_INTERVAL_MILLIS, ConfigSchedule.getIntervalMillis(TimeUnit.MINUTES.toMillis(5)));
+        assertEquals(TimeUnit.HOURS.toMillis(12), ConfigSchedule.getIntervalMillis(TimeUnit.HOURS.toMillis(12)));
+        assertEquals(ConfigSchedule.MAX_INTERVAL_MILLIS, ConfigSchedule.getIntervalMillis(TimeUnit.DAYS.toMillis(30)));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020 INESC TEC <https://www.inesctec.pt>
+ *
+ * This Source Code Form is subject to the terms of the European Union
+ * Public License, v. 1.2. If a copy of the EUPL was not distributed with
+ * this file, You can obtain one at https://opensource.org/licenses/EUPL-1.2.
+ *
+ * SPDX-License-Identifier: EUPL-1.2
+ */
+
+package fct.inesctec.stayaway.tracing.internal.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExponentialDistributionTest {
+
+    private static final int SAMPLES = 200_000;
+
+    // Kolmogorov-Smirnov critical value coefficient for a significance level of 0.001
+    private static final double KS_COEFFICIENT = 1.95;
+
+    @Test
+    public void seededSamplesFollowStandardExponential() {
+        Random random = new Random(42);
+        double[] samples = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = ExponentialDistribution.sample(random);
+        }
+
+        assertStandardExponential(samples);
+    }
+
+    @Test
+    public void singleSamplesFollowStandardExponential() {
+        double[] samples = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = ExponentialDistribution.sampleFromStandard();
+        }
+
+        assertStandardExponential(samples);
+    }
+
+    private static void assertStandardExponential(double[] samples) {
+        int n = samples.length;
+        double sum = 0;
+        for (double sample : samples) {
+            assertTrue(sample >= 0 && !Double.isInfinite(sample));
+            sum += sample;
+        }
+        double mean = sum / n;
+
+        double squares = 0;
+        for (double sample : samples) {
+            squares += (sample - mean) * (sample - mean);
+        }
+        double variance = squares / (n - 1);
+
+        // Mean and variance of the standard exponential are 1, within 5 standard errors
+        assertEquals(1.0, mean, 5 * Math.sqrt(1.0 / n));
+        assertEquals(1.0, variance, 5 * Math.sqrt(8.0 / n));
+
+        double[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        double d = 0;
+        for (int i = 0; i < n; i++) {
+            double cdf = 1 - Math.exp(-sorted[i]);
+            d = Math.max(d, Math.max((i + 1.0) / n - cdf, cdf - (double) i / n));
+        }
+        assertTrue("KS statistic " + d, d < KS_COEFFICIENT / Math.sqrt(n));
+    }
+}
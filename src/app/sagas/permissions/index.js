@@ -8,7 +8,8 @@
  * SPDX-License-Identifier: EUPL-1.2
  */
 
-import { takeLatest, put, call, fork } from 'redux-saga/effects';
+import { takeLatest, put, call, fork, take } from 'redux-saga/effects';
+import { eventChannel } from 'redux-saga';
 import { Platform } from 'react-native';
 import { checkNotifications, requestNotifications, RESULTS } from 'react-native-permissions';
 
@@ -162,6 +163,27 @@ export function* requestAllPermissions() {
   yield put(permissionsActions.requestAllPermissionsResult(true));
 }
 
+export function* watchDeviceState() {
+  const channel = eventChannel((emitter) => {
+    const subscription = TracingManager.addDeviceStateListener(emitter);
+    return () => subscription.remove();
+  });
+
+  try {
+    while (true) {
+      const { ignoringBatteryOptimizations } = yield take(channel);
+
+      if (ignoringBatteryOptimizations) {
+        yield put(permissionsActions.permissionGranted(BATTERY_PERMISSION));
+      } else {
+        yield put(permissionsActions.permissionDenied(BATTERY_PERMISSION));
+      }
+    }
+  } finally {
+    channel.close();
+  }
+}
+
 export function* watchCheckPermission() {
   yield takeLatest(permissionsTypes.CHECK_PERMISSION, checkPermission);
 }
@@ -183,4 +205,8 @@ export default function* root() {
   yield fork(watchCheckAllPermissions);
   yield fork(watchRequestPermission);
   yield fork(watchRequestAllPermissions);
+
+  if (Platform.OS === 'android') {
+    yield fork(watchDeviceState);
+  }
 }
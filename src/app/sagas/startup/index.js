@@ -22,6 +22,7 @@ import { isProtectorModalOpen } from '@app/redux/modals/selectors';
 import startupActions, { startupTypes } from '@app/redux/startup';
 import accountActions, { accountTypes, TRACING_RESULTS } from '@app/redux/account';
 import onboardingActions from '@app/redux/onboarding';
+import permissionsActions, { BATTERY_PERMISSION } from '@app/redux/permissions';
 import { isOnboarding } from '@app/redux/onboarding/selectors';
 
 export function* startup() {
@@ -145,9 +146,21 @@ function* watchAppStateChange() {
             if (! Configuration.UI) {
               yield call(TracingManager.sync);
 
-              // Get status
-              const status = yield call(TracingManager.getStatus);
-              yield put(accountActions.updateStatus(status));
+              if (Platform.OS === 'android') {
+                // Get the status and the device state in one call
+                const { status, ignoringBatteryOptimizations } = yield call(TracingManager.getDashboardState);
+                yield put(accountActions.updateStatus(status));
+
+                if (ignoringBatteryOptimizations) {
+                  yield put(permissionsActions.permissionGranted(BATTERY_PERMISSION));
+                } else {
+                  yield put(permissionsActions.permissionDenied(BATTERY_PERMISSION));
+                }
+              } else {
+                // Get status
+                const status = yield call(TracingManager.getStatus);
+                yield put(accountActions.updateStatus(status));
+              }
             }
           } catch (error) {
             // Sync error. Probably exposure check limit reached.
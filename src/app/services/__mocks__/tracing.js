@@ -75,6 +75,7 @@ export const EVENTS = {
     BLUETOOTH_SERVICE_CHANGED: 'fct.inesctec.stayaway.android.sdk.BLUETOOTH_SERVICE_CHANGED',
     BATTERY_OPTIMIZATION_CHANGED: 'fct.inesctec.stayaway.android.sdk.BATTERY_OPTIMIZATION_CHANGED',
     UPDATE_EVENT: 'fct.inesctec.stayaway.android.sdk.UPDATE_EVENT',
+    DEVICE_STATE_EVENT: 'fct.inesctec.stayaway.android.sdk.DEVICE_STATE_EVENT',
   },
 };
 
@@ -84,13 +85,23 @@ const sync = jest.fn();
 const isTracingEnabled = jest.fn();
 const isENSupported = jest.fn();
 const getStatus = jest.fn();
+const getStatusSync = jest.fn(() => null);
+const isTracingEnabledSync = jest.fn(() => null);
+const getInfoSync = jest.fn(() => null);
+const hasSyncAccessors = jest.fn(() => false);
+const benchmarkBridge = jest.fn(() => Promise.resolve({ asyncMillis: 0, syncMillis: 0 }));
 const exposed = jest.fn();
 const addUpdateEventListener = jest.fn();
 const removeUpdateEventListener = jest.fn();
+const addDeviceStateListener = jest.fn(() => ({ remove: jest.fn() }));
 const resetInfectionStatus = jest.fn();
 const resetExposureDays = jest.fn();
 const isIgnoringBatteryOptimizationsPermission = jest.fn();
 const requestIgnoreBatteryOptimizationsPermission = jest.fn();
+const getStartupTraces = jest.fn();
+const getMetrics = jest.fn();
+const getDashboardState = jest.fn();
+const warmUpBackends = jest.fn(() => Promise.resolve());
 
 export default {
   start,
@@ -99,11 +110,21 @@ export default {
   isTracingEnabled,
   isENSupported,
   getStatus,
+  getStatusSync,
+  isTracingEnabledSync,
+  getInfoSync,
+  hasSyncAccessors,
+  benchmarkBridge,
   exposed,
   addUpdateEventListener,
   removeUpdateEventListener,
+  addDeviceStateListener,
   resetInfectionStatus,
   resetExposureDays,
   isIgnoringBatteryOptimizationsPermission,
   requestIgnoreBatteryOptimizationsPermission,
+  getStartupTraces,
+  getMetrics,
+  getDashboardState,
+  warmUpBackends,
 };
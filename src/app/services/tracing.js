@@ -10,7 +10,7 @@
 
 import { NativeModules, NativeEventEmitter, Platform } from 'react-native';
 
-const { TracingManager } = NativeModules;
+const { TracingManager, TracingManagerSync } = NativeModules;
 
 export const INFECTION_STATUS = {
   HEALTHY: 0,
@@ -80,22 +80,154 @@ export const EVENTS = {
     BLUETOOTH_SERVICE_CHANGED: 'fct.inesctec.stayaway.android.sdk.BLUETOOTH_SERVICE_CHANGED',
     BATTERY_OPTIMIZATION_CHANGED: 'fct.inesctec.stayaway.android.sdk.BATTERY_OPTIMIZATION_CHANGED',
     UPDATE_EVENT: 'fct.inesctec.stayaway.android.sdk.UPDATE_EVENT',
+    DEVICE_STATE_EVENT: 'fct.inesctec.stayaway.android.sdk.DEVICE_STATE_EVENT',
   },
 };
 
+// Last full status received, used as base for the status patches sent by Android
+let lastStatus;
+
+const applyStatusPatch = (status, patch) => {
+  const addedExposureDays = patch.addedExposureDays || [];
+  const removedIds = new Set([
+    ...(patch.removedExposureDayIds || []),
+    ...addedExposureDays.map(({ id }) => id),
+  ]);
+
+  return {
+    ...status,
+    sequence: patch.sequence,
+    lastSyncDate: 'lastSyncDate' in patch ? patch.lastSyncDate : status.lastSyncDate,
+    infectionStatus: 'infectionStatus' in patch ? patch.infectionStatus : status.infectionStatus,
+    errors: 'errors' in patch ? patch.errors : status.errors,
+    exposureDays: status.exposureDays
+      .filter(({ id }) => ! removedIds.has(id))
+      .concat(addedExposureDays),
+  };
+};
+
+const getStatus = async () => {
+  lastStatus = await TracingManager.getStatus();
+  return lastStatus;
+};
+
+// Android only, reads the native status cache on the JS thread. Null when it is not cached,
+// getStatus has to be used then
+const getStatusSync = () => {
+  const status = TracingManagerSync ? TracingManagerSync.getStatusSync() : null;
+  if (status) {
+    lastStatus = status;
+  }
+  return status;
+};
+
+// Android only, reads whether tracing is enabled on the JS thread. Null when the synchronous
+// accessors are not built in, isTracingEnabled has to be used then
+const isTracingEnabledSync = () => (TracingManagerSync ? TracingManagerSync.isTracingEnabledSync() : null);
+
+// Android only, reads the device info on the JS thread. Null when the synchronous accessors are
+// not built in, getInfo has to be used then
+const getInfoSync = () => (TracingManagerSync ? TracingManagerSync.getInfoSync() : null);
+
+const hasSyncAccessors = () => Platform.OS === 'android' && !! TracingManagerSync;
+
+// Mean milliseconds per status read, through the asynchronous bridge and the synchronous accessor.
+// Both go through the wrappers, so the patch base stays in step with the native side
+const benchmarkBridge = async (iterations = 50) => {
+  let start = Date.now();
+  for (let i = 0; i < iterations; i++) {
+    await getStatus();
+  }
+  const asyncMillis = (Date.now() - start) / iterations;
+
+  start = Date.now();
+  for (let i = 0; i < iterations; i++) {
+    getStatusSync();
+  }
+  const syncMillis = (Date.now() - start) / iterations;
+
+  return { asyncMillis, syncMillis };
+};
+
+// Android only, the status it carries is the base for the following patches
+const getDashboardState = async () => {
+  const state = await TracingManager.getDashboardState();
+  lastStatus = state.status;
+  return state;
+};
+
 let updateEventSubscriber;
 const addUpdateEventListener = (callback) => {
-  updateEventSubscriber = new NativeEventEmitter(TracingManager).addListener(EVENTS[Platform.OS].UPDATE_EVENT, callback);
+  if (Platform.OS === 'android') {
+    TracingManager.setStatusPatchesEnabled(true);
+  }
+
+  updateEventSubscriber = new NativeEventEmitter(TracingManager).addListener(EVENTS[Platform.OS].UPDATE_EVENT, async (event) => {
+    if (! event.patch) {
+      lastStatus = event;
+    } else if (lastStatus && lastStatus.sequence === event.baseSequence) {
+      lastStatus = applyStatusPatch(lastStatus, event);
+    } else {
+      // Missed an update, resync the full status, from the native cache the update just filled when possible
+      try {
+        if (! getStatusSync()) {
+          await getStatus();
+        }
+      } catch (error) {
+        console.log(error);
+        return;
+      }
+    }
+
+    callback(lastStatus);
+  });
   return updateEventSubscriber;
 };
 const removeUpdateEventListener = () => {
   if (updateEventSubscriber) {
     updateEventSubscriber.remove();
   }
+
+  if (Platform.OS === 'android') {
+    TracingManager.setStatusPatchesEnabled(false);
+  }
+};
+
+// Android only, iOS has nothing to warm up
+const warmUpBackends = async () => {
+  if (Platform.OS === 'android') {
+    await TracingManager.warmUpBackends();
+  }
+};
+
+// Android only, pushes Bluetooth, location and battery optimization changes instead of polling them
+const addDeviceStateListener = (callback) => {
+  if (Platform.OS !== 'android') {
+    return { remove: () => {} };
+  }
+
+  const subscription = new NativeEventEmitter(TracingManager).addListener(EVENTS.android.DEVICE_STATE_EVENT, callback);
+  TracingManager.startDeviceStateUpdates();
+
+  return {
+    remove: () => {
+      subscription.remove();
+      TracingManager.stopDeviceStateUpdates();
+    },
+  };
 };
 
 export default {
   ...TracingManager,
+  getStatus,
+  getStatusSync,
+  isTracingEnabledSync,
+  getInfoSync,
+  hasSyncAccessors,
+  benchmarkBridge,
+  getDashboardState,
+  warmUpBackends,
   addUpdateEventListener,
   removeUpdateEventListener,
+  addDeviceStateListener,
 };
@@ -8,12 +8,13 @@
  * SPDX-License-Identifier: EUPL-1.2
  */
 
-import React from 'react';
+import React, { useEffect } from 'react';
 import { useDispatch, useSelector } from 'react-redux';
 
 import Diagnosis from '@main/components/Diagnosis';
 
 import NavigationService from '@app/services/navigation';
+import TracingManager, { INFECTION_STATUS } from '@app/services/tracing';
 
 import accountActions from '@app/redux/account';
 import { isSubmittingDianosis, getSubmittingDiagnosisError, getInfectionStatus } from '@app/redux/account/selectors';
@@ -22,9 +23,17 @@ import AppRoutes from '@app/navigation/routes';
 
 export default function DiagnosisScreen () {
   const dispatch = useDispatch();
+  const infectionStatus = useSelector(getInfectionStatus);
+
+  useEffect(() => {
+    // Prepare the clients and resolve the backends while the code is typed
+    if (infectionStatus !== INFECTION_STATUS.INFECTED) {
+      TracingManager.warmUpBackends().catch(() => {});
+    }
+  }, [infectionStatus]);
 
   const props = {
-    infectionStatus: useSelector(getInfectionStatus),
+    infectionStatus,
     loading: useSelector(isSubmittingDianosis),
     error: useSelector(getSubmittingDiagnosisError),
     onSubmit: (code) => dispatch(accountActions.submitDiagnosisRequest(code)),
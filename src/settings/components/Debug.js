@@ -96,6 +96,7 @@ export default function Debug (props) {
   const {
     signUp,
     status,
+    bridgeLatency,
     onClose,
   } = props;
 
@@ -155,6 +156,12 @@ export default function Debug (props) {
             <Text weight='bold'>{`${i18n.translate('screens.debug.errors')}: `}</Text>
             <Text>{errors}</Text>
           </View>
+          { bridgeLatency && (
+            <View style={memoizedStyle.stat}>
+              <Text weight='bold'>{`${i18n.translate('screens.debug.bridge_latency')}: `}</Text>
+              <Text>{`${bridgeLatency.asyncMillis.toFixed(2)} ms / ${bridgeLatency.syncMillis.toFixed(2)} ms`}</Text>
+            </View>
+          )}
         </View>
       </Layout>
       <View style={memoizedStyle.imagesContainer}>
@@ -170,6 +177,7 @@ export default function Debug (props) {
 
 Debug.defaultProps = {
   signUp: Moment(),
+  bridgeLatency: undefined,
   onClose: () => {},
 };
 
@@ -182,5 +190,9 @@ Debug.propTypes = {
     exposureDays: PropTypes.array,
     errors: PropTypes.array,
   }).isRequired,
+  bridgeLatency: PropTypes.shape({
+    asyncMillis: PropTypes.number,
+    syncMillis: PropTypes.number,
+  }),
   onClose: PropTypes.func,
 };
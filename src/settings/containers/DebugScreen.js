@@ -8,21 +8,35 @@
  * SPDX-License-Identifier: EUPL-1.2
  */
 
-import React from 'react';
+import React, { useEffect, useState } from 'react';
 import { useSelector } from 'react-redux';
 
 import Debug from '@settings/components/Debug';
 
 import NavigationService from '@app/services/navigation';
+import TracingManager from '@app/services/tracing';
 
 import { getStatus, getSignUpDate } from '@app/redux/account/selectors';
 
 import AppRoutes from '@app/navigation/routes';
 
 export default function DebugScreen () {
+  const [bridgeLatency, setBridgeLatency] = useState(undefined);
+
+  useEffect(() => {
+    if (! TracingManager.hasSyncAccessors()) {
+      return;
+    }
+
+    TracingManager.benchmarkBridge()
+      .then(setBridgeLatency)
+      .catch((error) => console.log(error));
+  }, []);
+
   const props = {
     signUp: useSelector(getSignUpDate),
     status: useSelector(getStatus),
+    bridgeLatency,
     onClose: () => NavigationService.navigate(AppRoutes.INFO),
   };
 